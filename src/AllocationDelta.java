@@ -0,0 +1,61 @@
+import java.util.*;
+
+/**
+ * Outcome of an incremental rebalance: which results changed and which
+ * families no longer have a result
+ */
+public class AllocationDelta {
+    private List<AllocationResult> changedResults;
+    private List<String> removedFamilyIds;
+    private int firstRecomputedPosition;
+    private int recomputedCount;
+    
+    public AllocationDelta(List<AllocationResult> changedResults, List<String> removedFamilyIds,
+                           int firstRecomputedPosition, int recomputedCount) {
+        this.changedResults = changedResults;
+        this.removedFamilyIds = removedFamilyIds;
+        this.firstRecomputedPosition = firstRecomputedPosition;
+        this.recomputedCount = recomputedCount;
+    }
+    
+    /**
+     * Compare the old and new results of a recomputed suffix
+     */
+    public static AllocationDelta between(List<AllocationResult> oldSuffix, List<AllocationResult> newSuffix,
+                                          int firstRecomputedPosition) {
+        Map<String, AllocationResult> previous = new HashMap<>();
+        for (AllocationResult result : oldSuffix) {
+            previous.put(result.getFamilyId(), result);
+        }
+        
+        List<AllocationResult> changed = new ArrayList<>();
+        for (AllocationResult result : newSuffix) {
+            AllocationResult old = previous.remove(result.getFamilyId());
+            if (!result.hasSameAllocation(old)) {
+                changed.add(result);
+            }
+        }
+        
+        return new AllocationDelta(changed, new ArrayList<>(previous.keySet()),
+                firstRecomputedPosition, newSuffix.size());
+    }
+    
+    // Getters
+    public List<AllocationResult> getChangedResults() { return changedResults; }
+    public List<String> getRemovedFamilyIds() { return removedFamilyIds; }
+    public int getFirstRecomputedPosition() { return firstRecomputedPosition; }
+    public int getRecomputedCount() { return recomputedCount; }
+    
+    /**
+     * Check if the rebalance changed anything
+     */
+    public boolean isEmpty() {
+        return changedResults.isEmpty() && removedFamilyIds.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("AllocationDelta[from=%d, recomputed=%d, changed=%d, removed=%d]",
+                firstRecomputedPosition, recomputedCount, changedResults.size(), removedFamilyIds.size());
+    }
+}
\ No newline at end of file
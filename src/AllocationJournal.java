@@ -0,0 +1,849 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of an allocator's state: supply definitions and stock
+ * movements, family changes and allocation runs, as compact binary records.
+ *
+ * Records are buffered and written in frames (length, CRC32, records) through
+ * a FileChannel. A background thread commits the buffer every few
+ * milliseconds with one write and one force, so many changes share a single
+ * sync (group commit); flush() commits immediately. On open the journal is
+ * replayed frame by frame and a torn or corrupt tail is cut off.
+ *
+ * attach() and checkpoint() compact the journal: the full current state is
+ * written to a new file that atomically replaces the old one, so replay only
+ * reads one checkpoint plus the changes after it. A checkpoint is also taken
+ * after a run once enough events have accumulated.
+ *
+ * Stock changes made during an allocation run are summed per supply and
+ * written as RUN_DELTA records ahead of the run's results when it finishes.
+ * A large run spans several frames, so replay holds a run's deltas and
+ * results back until all the RESULT records its RUN record announced have
+ * been read; a run cut off by a torn tail is dropped as a whole. A run that
+ * fails (see AllocationListener.onRunAborted) writes its stock movement as
+ * plain stock changes and no results. After Inventory or SupplyAllocator
+ * objects are replaced (e.g. setInventory), call attach() again.
+ */
+public class AllocationJournal implements AllocationListener, InventoryListener, FamilyListener, Closeable {
+    // Record types
+    private static final byte NAME = 1;           // id, name: journal supply ID -> name
+    private static final byte INVENTORY = 2;      // capacity: start of a full state, supplies dropped
+    private static final byte SUPPLY = 3;         // id, weight, value, quantity, unit
+    private static final byte STOCK_DELTA = 4;    // id, delta
+    private static final byte CLEAR_SUPPLIES = 5;
+    private static final byte FAMILY = 6;         // id, size, distance, urgency, active
+    private static final byte FAMILY_REMOVED = 7; // id
+    private static final byte RUN = 8;            // result count; that many RESULT records follow
+    private static final byte RESULT = 9;         // family id, value, weight, score, count, (id, quantity)*
+    private static final byte RUN_DELTA = 10;     // id, delta: stock movement of the next RUN
+    
+    private static final int FRAME_HEADER = 8; // payload length, CRC32 of payload
+    private static final int MAX_FRAME = 1 << 20;
+    private static final long DEFAULT_COMMIT_MILLIS = 5;
+    private static final long DEFAULT_CHECKPOINT_EVENTS = 1_000_000;
+    
+    private final Path path;
+    private FileChannel channel;
+    private final Recovery recovery;
+    
+    // Group commit: records go to pending; a full batch is swapped with spare
+    // and written outside the lock. ioLock orders the writes.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition spareReturned = lock.newCondition();
+    private final Object ioLock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(MAX_FRAME);
+    private ByteBuffer spare = ByteBuffer.allocate(MAX_FRAME);
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+    private final ScheduledExecutorService committer;
+    private volatile IOException failure;
+    
+    private boolean[] named = new boolean[16]; // supply IDs with a NAME record in this file
+    private long[] runDeltas = new long[16];   // stock movement of the running allocation
+    private long[] journaled = new long[16];   // quantity per supply ID as the journal has it
+    private boolean inRun;
+    private long eventsSinceCheckpoint;
+    private long checkpointEvery = DEFAULT_CHECKPOINT_EVENTS;
+    
+    private SupplyAllocator allocator;
+    private Inventory inventory;
+    
+    private AllocationJournal(Path path, FileChannel channel, Recovery recovery, long commitMillis) {
+        this.path = path;
+        this.channel = channel;
+        this.recovery = recovery;
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitQuietly, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Open (or create) a journal, replaying what it holds
+     */
+    public static AllocationJournal open(Path path) throws IOException {
+        return open(path, DEFAULT_COMMIT_MILLIS);
+    }
+    
+    /**
+     * Open a journal with a custom group-commit interval
+     */
+    public static AllocationJournal open(Path path, long commitMillis) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Recovery recovery = replay(channel);
+        channel.truncate(recovery.validLength);
+        channel.position(recovery.validLength);
+        return new AllocationJournal(path, channel, recovery, Math.max(1, commitMillis));
+    }
+    
+    /**
+     * Replay a journal without opening it for writing
+     */
+    public static Recovery recover(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return replay(channel);
+        }
+    }
+    
+    /**
+     * State found in the journal when it was opened (empty for a new journal)
+     */
+    public Recovery getRecovery() {
+        return recovery;
+    }
+    
+    public void setCheckpointEvery(long events) {
+        this.checkpointEvery = Math.max(1, events);
+    }
+    
+    /**
+     * Start journaling an allocator: writes a checkpoint of its current state
+     * and then follows its inventory, families and runs
+     */
+    public void attach(SupplyAllocator allocator) throws IOException {
+        detach();
+        this.allocator = allocator;
+        this.inventory = allocator.getInventory();
+        inventory.addInventoryListener(this);
+        allocator.addFamilyListener(this);
+        allocator.addAllocationListener(this);
+        checkpoint(true);
+    }
+    
+    /**
+     * Stop following the attached allocator
+     */
+    public void detach() {
+        if (allocator != null) {
+            inventory.removeInventoryListener(this);
+            allocator.removeFamilyListener(this);
+            allocator.removeAllocationListener(this);
+            allocator = null;
+            inventory = null;
+        }
+    }
+    
+    // Inventory events
+    
+    @Override
+    public void onSupplyDefined(Supply supply) {
+        lock.lock();
+        try {
+            writeSupply(supply, supply.getQuantity());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void onStockChanged(Supply supply, int before, int after) {
+        lock.lock();
+        try {
+            int id = supply.getTypeId();
+            if (inRun) {
+                slot(id);
+                runDeltas[id] += after - before;
+            } else {
+                writeDelta(STOCK_DELTA, id, after - before);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void onInventoryCleared() {
+        lock.lock();
+        try {
+            reserve(1);
+            pending.put(CLEAR_SUPPLIES);
+            eventsSinceCheckpoint++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Family events
+    
+    @Override
+    public void onFamilyUpdated(Family family) {
+        lock.lock();
+        try {
+            writeFamily(family);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void onFamilyRemoved(String familyId) {
+        lock.lock();
+        try {
+            byte[] id = encode(familyId);
+            reserve(3 + id.length);
+            pending.put(FAMILY_REMOVED);
+            putString(id);
+            eventsSinceCheckpoint++;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Allocation events
+    
+    @Override
+    public void onPhaseStarted(String phase, List<Family> familiesInOrder) {
+        lock.lock();
+        try {
+            inRun = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void onRunFinished(List<AllocationResult> results) {
+        boolean checkpointDue;
+        lock.lock();
+        try {
+            for (int id = 0; id < runDeltas.length; id++) {
+                if (runDeltas[id] != 0) {
+                    writeDelta(RUN_DELTA, id, (int) runDeltas[id]);
+                    runDeltas[id] = 0;
+                }
+            }
+            inRun = false;
+            writeResults(results);
+            checkpointDue = eventsSinceCheckpoint >= checkpointEvery;
+        } finally {
+            lock.unlock();
+        }
+        if (checkpointDue) {
+            try {
+                checkpoint(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+    
+    /**
+     * A failed run writes no results: the stock it moved so far becomes
+     * plain stock changes and later changes are no longer held back
+     */
+    @Override
+    public void onRunAborted(Throwable cause) {
+        lock.lock();
+        try {
+            for (int id = 0; id < runDeltas.length; id++) {
+                if (runDeltas[id] != 0) {
+                    writeDelta(STOCK_DELTA, id, (int) runDeltas[id]);
+                    runDeltas[id] = 0;
+                }
+            }
+            inRun = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Compact: replace the journal with one holding just the current state.
+     * Stock is taken from what was journaled, so changes still being reported
+     * by other threads are applied on top of the checkpoint, not counted twice.
+     */
+    public void checkpoint() throws IOException {
+        checkpoint(false);
+    }
+    
+    private void checkpoint(boolean fromInventory) throws IOException {
+        lock.lock();
+        try {
+            // Wait for a batch that is being written, then write nothing more to the old file
+            while (spare == null) {
+                spareReturned.awaitUninterruptibly();
+            }
+            synchronized (ioLock) {
+                pending.clear(); // covered by the state written below
+                Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+                FileChannel old = channel;
+                channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                Arrays.fill(named, false);
+                
+                if (allocator != null) {
+                    writeState(fromInventory);
+                }
+                writeFrame(pending);
+                pending.clear();
+                channel.force(true);
+                channel.close();
+                
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                old.close();
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+                eventsSinceCheckpoint = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Commit buffered records now
+     */
+    public void flush() throws IOException {
+        ByteBuffer batch;
+        lock.lock();
+        try {
+            if (pending.position() == 0) {
+                return;
+            }
+            batch = swapBatch();
+        } finally {
+            lock.unlock();
+        }
+        writeBatch(batch);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        detach();
+        flush();
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    private void commitQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+    
+    // Encoding (lock held)
+    
+    private void writeState(boolean fromInventory) {
+        reserve(5);
+        pending.put(INVENTORY).putInt(inventory.getMaxCapacity());
+        for (Supply supply : inventory.getAllSupplies()) {
+            int id = slot(supply.getTypeId());
+            long quantity = fromInventory ? supply.getQuantity() : journaled[id] + runDeltas[id];
+            runDeltas[id] = 0;
+            writeSupply(supply, (int) quantity);
+        }
+        for (Family family : allocator.getFamilies()) {
+            writeFamily(family);
+        }
+        writeResults(allocator.getAllocationResults());
+    }
+    
+    private void writeSupply(Supply supply, int quantity) {
+        int id = supply.getTypeId();
+        writeName(id);
+        byte[] unit = encode(supply.getUnit() != null ? supply.getUnit() : "");
+        reserve(19 + unit.length);
+        pending.put(SUPPLY).putInt(id).putInt(supply.getWeight()).putInt(supply.getValue())
+                .putInt(quantity);
+        putString(unit);
+        journaled[id] = quantity;
+        eventsSinceCheckpoint++;
+    }
+    
+    private void writeDelta(byte type, int id, int delta) {
+        writeName(id);
+        reserve(9);
+        pending.put(type).putInt(id).putInt(delta);
+        journaled[id] += delta;
+        eventsSinceCheckpoint++;
+    }
+    
+    private void writeFamily(Family family) {
+        byte[] id = encode(family.getFamilyId());
+        reserve(17 + id.length);
+        pending.put(FAMILY);
+        putString(id);
+        pending.putInt(family.getSize()).putDouble(family.getDistance())
+                .put((byte) family.getUrgencyScore()).put((byte) (family.isActive() ? 1 : 0));
+        eventsSinceCheckpoint++;
+    }
+    
+    private void writeResults(List<AllocationResult> results) {
+        reserve(5);
+        pending.put(RUN).putInt(results.size());
+        int columns = SupplyTypeRegistry.size();
+        for (AllocationResult result : results) {
+            int count = 0;
+            for (int id = 0; id < columns; id++) {
+                if (result.getAllocatedQuantity(id) != 0) {
+                    writeName(id);
+                    count++;
+                }
+            }
+            byte[] familyId = encode(result.getFamilyId());
+            reserve(21 + familyId.length + count * 8);
+            pending.put(RESULT);
+            putString(familyId);
+            pending.putInt(result.getTotalValue()).putInt(result.getTotalWeight())
+                    .putDouble(result.getAllocationScore()).putShort((short) count);
+            for (int id = 0; id < columns && count > 0; id++) {
+                int quantity = result.getAllocatedQuantity(id);
+                if (quantity != 0) {
+                    pending.putInt(id).putInt(quantity);
+                    count--;
+                }
+            }
+        }
+        eventsSinceCheckpoint += results.size() + 1;
+    }
+    
+    private void writeName(int id) {
+        slot(id);
+        if (!named[id]) {
+            byte[] name = encode(SupplyTypeRegistry.nameOf(id));
+            reserve(7 + name.length);
+            pending.put(NAME).putInt(id);
+            putString(name);
+            named[id] = true;
+        }
+    }
+    
+    /**
+     * Grow the per supply ID arrays to hold an ID
+     */
+    private int slot(int id) {
+        if (id >= named.length) {
+            int length = Math.max(id + 1, named.length * 2);
+            named = Arrays.copyOf(named, length);
+            runDeltas = Arrays.copyOf(runDeltas, length);
+            journaled = Arrays.copyOf(journaled, length);
+        }
+        return id;
+    }
+    
+    private void putString(byte[] bytes) {
+        pending.putShort((short) bytes.length).put(bytes);
+    }
+    
+    private static byte[] encode(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value too long for the journal: " + value.length() + " chars");
+        }
+        return bytes;
+    }
+    
+    /**
+     * Make room for a record, committing the pending batch if it is full
+     */
+    private void reserve(int bytes) {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal write failed earlier", failure);
+        }
+        while (pending.remaining() < bytes) {
+            if (lock.getHoldCount() > 1 || Thread.holdsLock(ioLock)) {
+                // Inside a checkpoint or a nested call: write in place
+                try {
+                    writeFrame(pending);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                pending.clear();
+                continue;
+            }
+            ByteBuffer batch = swapBatch();
+            lock.unlock();
+            try {
+                writeBatch(batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.lock();
+            }
+        }
+    }
+    
+    /**
+     * Hand the pending batch to the caller and continue in the spare buffer (lock held)
+     */
+    private ByteBuffer swapBatch() {
+        while (spare == null) {
+            spareReturned.awaitUninterruptibly();
+        }
+        ByteBuffer batch = pending;
+        pending = spare;
+        spare = null;
+        return batch;
+    }
+    
+    /**
+     * Write a swapped-out batch and give its buffer back (lock not held)
+     */
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        try {
+            synchronized (ioLock) {
+                writeFrame(batch);
+            }
+        } finally {
+            batch.clear();
+            lock.lock();
+            try {
+                spare = batch;
+                spareReturned.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private void writeFrame(ByteBuffer batch) throws IOException {
+        if (batch.position() == 0) {
+            return;
+        }
+        ByteBuffer payload = batch.duplicate();
+        payload.flip();
+        crc.reset();
+        crc.update(payload.duplicate());
+        header.clear();
+        header.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+        ByteBuffer[] frame = {header, payload};
+        while (payload.hasRemaining()) {
+            channel.write(frame);
+        }
+        channel.force(false);
+    }
+    
+    // Replay
+    
+    private static Recovery replay(FileChannel channel) throws IOException {
+        Replayer state = new Replayer();
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer block = ByteBuffer.allocate(8 * MAX_FRAME);
+        long blockStart = 0; // file position of block[0]
+        block.limit(0);
+        CRC32 check = new CRC32();
+        
+        while (position + FRAME_HEADER <= size) {
+            int offset = (int) (position - blockStart);
+            if (block.limit() - offset < FRAME_HEADER + MAX_FRAME && blockStart + block.limit() < size) {
+                // Refill so the whole next frame is in the block
+                block.position(offset);
+                block.compact();
+                blockStart = position;
+                while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) {
+                    // keep reading
+                }
+                block.flip();
+                offset = 0;
+            }
+            if (block.limit() - offset < FRAME_HEADER) {
+                break;
+            }
+            int length = block.getInt(offset);
+            int expected = block.getInt(offset + 4);
+            if (length <= 0 || length > MAX_FRAME || block.limit() - offset - FRAME_HEADER < length) {
+                break;
+            }
+            ByteBuffer payload = block.duplicate();
+            payload.position(offset + FRAME_HEADER).limit(offset + FRAME_HEADER + length);
+            check.reset();
+            check.update(payload.duplicate());
+            if ((int) check.getValue() != expected || !state.apply(payload)) {
+                break;
+            }
+            position += FRAME_HEADER + length;
+        }
+        
+        return state.finish(position, size - position);
+    }
+    
+    /**
+     * Journal state rebuilt in plain arrays and maps, turned into objects at the end
+     */
+    private static final class Replayer {
+        private int maxCapacity = 1000;
+        private String[] names = new String[16];
+        private boolean[] present = new boolean[16];
+        private int[] weights = new int[16];
+        private int[] values = new int[16];
+        private long[] quantities = new long[16];
+        private String[] units = new String[16];
+        private final Map<String, double[]> families = new LinkedHashMap<>(); // size, distance, urgency, active
+        private final List<Object[]> results = new ArrayList<>(); // family ID, int[] row
+        private long events;
+        
+        // Run being read: applied once runExpected results are in
+        private long[] runDeltas = new long[16];
+        private final List<Object[]> runResults = new ArrayList<>();
+        private int runExpected = -1; // -1 until the RUN record is read
+        
+        /**
+         * Apply one frame; false if it does not decode (treated as corruption)
+         */
+        boolean apply(ByteBuffer in) {
+            try {
+                while (in.hasRemaining()) {
+                    byte type = in.get();
+                    switch (type) {
+                        case NAME: {
+                            int id = slot(in.getInt());
+                            names[id] = getString(in);
+                            break;
+                        }
+                        case INVENTORY:
+                            maxCapacity = in.getInt();
+                            Arrays.fill(present, false);
+                            families.clear();
+                            results.clear();
+                            dropRun();
+                            break;
+                        case SUPPLY: {
+                            int id = slot(in.getInt());
+                            weights[id] = in.getInt();
+                            values[id] = in.getInt();
+                            quantities[id] = in.getInt();
+                            units[id] = getString(in);
+                            present[id] = true;
+                            break;
+                        }
+                        case STOCK_DELTA: {
+                            int id = slot(in.getInt());
+                            quantities[id] += in.getInt();
+                            break;
+                        }
+                        case CLEAR_SUPPLIES:
+                            Arrays.fill(present, false);
+                            break;
+                        case FAMILY: {
+                            String id = getString(in);
+                            double[] row = families.computeIfAbsent(id, k -> new double[4]);
+                            row[0] = in.getInt();
+                            row[1] = in.getDouble();
+                            row[2] = in.get();
+                            row[3] = in.get();
+                            break;
+                        }
+                        case FAMILY_REMOVED:
+                            families.remove(getString(in));
+                            break;
+                        case RUN_DELTA: {
+                            if (runExpected >= 0) {
+                                dropRun(); // left over from a run that never completed
+                            }
+                            int id = slot(in.getInt());
+                            runDeltas[id] += in.getInt();
+                            break;
+                        }
+                        case RUN: {
+                            int count = in.getInt();
+                            if (count < 0) {
+                                return false;
+                            }
+                            if (runExpected >= 0) {
+                                dropRun();
+                            }
+                            runExpected = count;
+                            completeRun();
+                            break;
+                        }
+                        case RESULT: {
+                            String familyId = getString(in);
+                            int value = in.getInt();
+                            int weight = in.getInt();
+                            double score = in.getDouble();
+                            int count = in.getShort() & 0xFFFF;
+                            int[] row = new int[4 + count * 2];
+                            row[0] = value;
+                            row[1] = weight;
+                            long bits = Double.doubleToRawLongBits(score);
+                            row[2] = (int) (bits >>> 32);
+                            row[3] = (int) bits;
+                            for (int i = 0; i < count * 2; i++) {
+                                row[4 + i] = in.getInt();
+                            }
+                            if (runExpected >= 0) {
+                                runResults.add(new Object[] {familyId, row});
+                                completeRun();
+                            }
+                            break;
+                        }
+                        default:
+                            return false;
+                    }
+                    events++;
+                }
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        
+        /**
+         * Apply the run being read once all its results are in
+         */
+        private void completeRun() {
+            if (runResults.size() < runExpected) {
+                return;
+            }
+            for (int id = 0; id < runDeltas.length; id++) {
+                quantities[id] += runDeltas[id];
+            }
+            results.clear();
+            results.addAll(runResults);
+            dropRun();
+        }
+        
+        private void dropRun() {
+            Arrays.fill(runDeltas, 0);
+            runResults.clear();
+            runExpected = -1;
+        }
+        
+        private int slot(int id) {
+            if (id < 0) {
+                throw new IllegalStateException("Negative supply ID");
+            }
+            if (id >= names.length) {
+                int length = Math.max(id + 1, names.length * 2);
+                names = Arrays.copyOf(names, length);
+                present = Arrays.copyOf(present, length);
+                weights = Arrays.copyOf(weights, length);
+                values = Arrays.copyOf(values, length);
+                quantities = Arrays.copyOf(quantities, length);
+                units = Arrays.copyOf(units, length);
+                runDeltas = Arrays.copyOf(runDeltas, length);
+            }
+            return id;
+        }
+        
+        private static String getString(ByteBuffer in) {
+            int length = in.getShort() & 0xFFFF;
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        Recovery finish(long validLength, long discardedBytes) {
+            Inventory inventory = new Inventory(maxCapacity, new HashMap<>(), false);
+            for (int id = 0; id < names.length; id++) {
+                if (present[id] && names[id] != null) {
+                    inventory.addSupply(new Supply(names[id], weights[id], values[id],
+                            (int) Math.max(0, quantities[id]), units[id]));
+                }
+            }
+            
+            List<Family> familyList = new ArrayList<>(families.size());
+            for (Map.Entry<String, double[]> entry : families.entrySet()) {
+                double[] row = entry.getValue();
+                Family family = new Family(entry.getKey(), (int) row[0], row[1], (int) row[2]);
+                if (row[3] == 0) {
+                    family.setActive(false);
+                }
+                familyList.add(family);
+            }
+            
+            int[] typeIds = new int[names.length];
+            for (int id = 0; id < names.length; id++) {
+                typeIds[id] = names[id] != null ? SupplyTypeRegistry.register(names[id]) : -1;
+            }
+            AllocationMatrix matrix = new AllocationMatrix(results.size());
+            List<AllocationResult> resultList = new ArrayList<>(results.size());
+            for (Object[] entry : results) {
+                int[] row = (int[]) entry[1];
+                AllocationResult result = matrix.newResult((String) entry[0]);
+                for (int i = 4; i < row.length; i += 2) {
+                    int typeId = row[i] >= 0 && row[i] < typeIds.length ? typeIds[row[i]] : -1;
+                    if (typeId >= 0) {
+                        result.addAllocatedSupply(typeId, row[i + 1], 0, 0);
+                    }
+                }
+                matrix.setTotals(result.getRow(), row[0], row[1]);
+                matrix.setScore(result.getRow(), Double.longBitsToDouble((long) row[2] << 32 | (row[3] & 0xFFFFFFFFL)));
+                resultList.add(result);
+            }
+            
+            return new Recovery(inventory, familyList, resultList, events, validLength, discardedBytes);
+        }
+    }
+    
+    /**
+     * State recovered from a journal
+     */
+    public static final class Recovery {
+        private final Inventory inventory;
+        private final List<Family> families;
+        private final List<AllocationResult> results;
+        private final long eventCount;
+        private final long validLength;
+        private final long discardedBytes;
+        
+        Recovery(Inventory inventory, List<Family> families, List<AllocationResult> results,
+                 long eventCount, long validLength, long discardedBytes) {
+            this.inventory = inventory;
+            this.families = families;
+            this.results = results;
+            this.eventCount = eventCount;
+            this.validLength = validLength;
+            this.discardedBytes = discardedBytes;
+        }
+        
+        /**
+         * Rebuild an allocator holding the recovered families, stock and last results
+         */
+        public SupplyAllocator toAllocator(int baseCapacityPerFamily) {
+            SupplyAllocator restored = new SupplyAllocator(families, inventory, baseCapacityPerFamily);
+            restored.restoreResults(results);
+            return restored;
+        }
+        
+        // Getters
+        public Inventory getInventory() { return inventory; }
+        public List<Family> getFamilies() { return families; }
+        public List<AllocationResult> getResults() { return results; }
+        public long getEventCount() { return eventCount; }
+        public long getDiscardedBytes() { return discardedBytes; }
+        public boolean isEmpty() { return eventCount == 0; }
+    }
+}
\ No newline at end of file
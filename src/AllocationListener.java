@@ -0,0 +1,46 @@
+import java.util.*;
+
+/**
+ * Receives progress events from an allocation run.
+ * All methods have empty defaults so listeners only override what they need.
+ */
+public interface AllocationListener {
+    
+    /**
+     * Called when a run (or rebalance) phase starts
+     * @param phase Phase name, e.g. "ALLOCATION PROCESS"
+     * @param families Families in the order they will be served
+     */
+    default void onPhaseStarted(String phase, List<Family> families) {}
+    
+    /**
+     * Called instead of onPhaseStarted when a run has nothing to allocate
+     * (no families or no stock); onRunFinished still follows
+     * @param reason Short human readable reason
+     */
+    default void onRunSkipped(String reason) {}
+    
+    /**
+     * Called after a family received at least one supply
+     */
+    default void onFamilyAllocated(Family family, AllocationResult result) {}
+    
+    /**
+     * Called when a family could not be given any supplies
+     * @param reason Short human readable reason
+     */
+    default void onFamilySkipped(Family family, String reason) {}
+    
+    /**
+     * Called once the run is complete
+     * @param results Results in allocation order (empty if nothing was allocated)
+     */
+    default void onRunFinished(List<AllocationResult> results) {}
+    
+    /**
+     * Called when a run (or rebalance) ends with an exception instead of
+     * finishing; onRunFinished may or may not have been called before it
+     * @param cause What stopped the run; it is rethrown to the caller
+     */
+    default void onRunAborted(Throwable cause) {}
+}
\ No newline at end of file
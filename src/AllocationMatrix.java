@@ -0,0 +1,280 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dense store for the results of an allocation run: one row per family, one
+ * int column per supply type (see SupplyTypeRegistry), plus total value,
+ * total weight and score per row.
+ *
+ * Rows live in fixed-size chunks that are never moved, so several threads may
+ * add and fill rows at once (rows are handed out under a short lock) and a
+ * grown matrix never copies existing data. AllocationResult is a view of one
+ * row. Supply types registered after the matrix was created are kept in a
+ * small side map, as are the dated lots a row's claims drew from.
+ */
+public class AllocationMatrix {
+    private static final int MAX_CHUNK_ROWS = 4096;
+    
+    private final int columns;
+    private final int chunkRows;
+    private volatile Chunk[] chunks = new Chunk[0];
+    private int rowCount;
+    private final Map<Long, Integer> lateColumns = new HashMap<>(); // (row, typeId) -> quantity
+    private final Map<Integer, LotDraws> lotDraws = new ConcurrentHashMap<>(); // only rows that drew from lots
+    
+    public AllocationMatrix(int expectedRows) {
+        this.columns = SupplyTypeRegistry.size();
+        this.chunkRows = Math.min(MAX_CHUNK_ROWS, Math.max(1, expectedRows));
+    }
+    
+    /**
+     * Add an empty row for a family
+     * @return The new row
+     */
+    public synchronized int addRow(String familyId) {
+        int row = rowCount;
+        int chunk = row / chunkRows;
+        if (chunk == chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunk + 1);
+            grown[chunk] = new Chunk(chunkRows, columns);
+            chunks = grown;
+        }
+        chunks[chunk].familyIds[row % chunkRows] = familyId;
+        rowCount++;
+        return row;
+    }
+    
+    /**
+     * Add an empty row and return its result view
+     */
+    public AllocationResult newResult(String familyId) {
+        return new AllocationResult(this, addRow(familyId));
+    }
+    
+    /**
+     * Copy a result from any matrix into a new row of this one
+     */
+    public AllocationResult copyOf(AllocationResult source) {
+        AllocationResult copy = newResult(source.getFamilyId());
+        int row = copy.getRow();
+        AllocationMatrix from = source.getMatrix();
+        int sourceRow = source.getRow();
+        
+        Chunk chunk = chunk(row);
+        int offset = row % chunkRows;
+        for (int typeId = 0; typeId < Math.max(columns, from.columns); typeId++) {
+            int quantity = from.getQuantity(sourceRow, typeId);
+            if (quantity != 0) {
+                setQuantity(row, typeId, quantity);
+                chunk.typeCounts[offset]++;
+            }
+        }
+        Map<Long, Integer> late;
+        synchronized (from) {
+            late = new HashMap<>(from.lateColumns);
+        }
+        for (Map.Entry<Long, Integer> entry : late.entrySet()) {
+            int typeId = (int) (long) entry.getKey();
+            if ((int) (entry.getKey() >>> 32) == sourceRow && typeId >= Math.max(columns, from.columns)) {
+                setQuantity(row, typeId, entry.getValue());
+                chunk.typeCounts[offset]++;
+            }
+        }
+        chunk.values[offset] = from.getTotalValue(sourceRow);
+        chunk.weights[offset] = from.getTotalWeight(sourceRow);
+        chunk.scores[offset] = from.getScore(sourceRow);
+        setLotDraws(row, from.getLotDraws(sourceRow));
+        return copy;
+    }
+    
+    /**
+     * Keep the lot draws of a row's claims; null or empty drops them
+     */
+    public void setLotDraws(int row, LotDraws draws) {
+        if (draws == null || draws.isEmpty()) {
+            lotDraws.remove(row);
+        } else {
+            lotDraws.put(row, draws);
+        }
+    }
+    
+    /**
+     * Lot draws of a row's claims, or null
+     */
+    public LotDraws getLotDraws(int row) {
+        return lotDraws.get(row);
+    }
+    
+    /**
+     * Add units of a supply type to a row
+     */
+    public void add(int row, int typeId, int quantity, int unitValue, int unitWeight) {
+        if (quantity <= 0) {
+            return;
+        }
+        Chunk chunk = chunk(row);
+        int offset = row % chunkRows;
+        int before = getQuantity(row, typeId);
+        if (before == 0) {
+            chunk.typeCounts[offset]++;
+        }
+        setQuantity(row, typeId, before + quantity);
+        chunk.values[offset] += quantity * unitValue;
+        chunk.weights[offset] += quantity * unitWeight;
+    }
+    
+    /**
+     * Drop one supply type from a row (totals are left as they are)
+     */
+    public void clearType(int row, int typeId) {
+        if (getQuantity(row, typeId) != 0) {
+            setQuantity(row, typeId, 0);
+            chunk(row).typeCounts[row % chunkRows]--;
+        }
+    }
+    
+    /**
+     * Reset a row to no allocation
+     */
+    public void clearRow(int row) {
+        Chunk chunk = chunk(row);
+        int offset = row % chunkRows;
+        Arrays.fill(chunk.quantities, offset * columns, (offset + 1) * columns, 0);
+        if (chunk.typeCounts[offset] > 0) {
+            synchronized (this) {
+                lateColumns.keySet().removeIf(key -> (int) (key >>> 32) == row);
+                lotDraws.remove(row);
+            }
+        }
+        chunk.typeCounts[offset] = 0;
+        chunk.values[offset] = 0;
+        chunk.weights[offset] = 0;
+        chunk.scores[offset] = 0.0;
+    }
+    
+    // Row accessors
+    public String getFamilyId(int row) { return chunk(row).familyIds[row % chunkRows]; }
+    public int getTotalValue(int row) { return chunk(row).values[row % chunkRows]; }
+    public int getTotalWeight(int row) { return chunk(row).weights[row % chunkRows]; }
+    public double getScore(int row) { return chunk(row).scores[row % chunkRows]; }
+    public int getTypeCount(int row) { return chunk(row).typeCounts[row % chunkRows]; }
+    public void setScore(int row, double score) { chunk(row).scores[row % chunkRows] = score; }
+    
+    /**
+     * Overwrite a row's totals, for results restored from persisted state
+     */
+    void setTotals(int row, int totalValue, int totalWeight) {
+        chunk(row).values[row % chunkRows] = totalValue;
+        chunk(row).weights[row % chunkRows] = totalWeight;
+    }
+    
+    public int getQuantity(int row, int typeId) {
+        if (typeId < 0) {
+            return 0;
+        }
+        if (typeId < columns) {
+            return chunk(row).quantities[(row % chunkRows) * columns + typeId];
+        }
+        synchronized (this) {
+            return lateColumns.getOrDefault(key(row, typeId), 0);
+        }
+    }
+    
+    public synchronized int rowCount() { return rowCount; }
+    
+    /**
+     * Number of type columns that can be read (at least SupplyTypeRegistry.size() at creation)
+     */
+    public int typeColumns() {
+        return Math.max(columns, SupplyTypeRegistry.size());
+    }
+    
+    // Aggregates, each one pass over the rows
+    public long totalValue() {
+        long total = 0;
+        for (int row = 0, n = rowCount(); row < n; row++) total += getTotalValue(row);
+        return total;
+    }
+    
+    public long totalWeight() {
+        long total = 0;
+        for (int row = 0, n = rowCount(); row < n; row++) total += getTotalWeight(row);
+        return total;
+    }
+    
+    /**
+     * Rows that received anything
+     */
+    public int servedCount() {
+        int served = 0;
+        for (int row = 0, n = rowCount(); row < n; row++) {
+            if (getTypeCount(row) > 0 && getTotalValue(row) > 0) served++;
+        }
+        return served;
+    }
+    
+    /**
+     * Units handed out per supply type ID
+     */
+    public long[] totalsByType() {
+        long[] totals = new long[typeColumns()];
+        int n = rowCount();
+        Chunk[] current = chunks;
+        for (int c = 0; c < current.length; c++) {
+            int rows = Math.min(chunkRows, n - c * chunkRows);
+            int[] quantities = current[c].quantities;
+            for (int i = 0; i < rows * columns; i++) {
+                totals[i % columns] += quantities[i];
+            }
+        }
+        synchronized (this) {
+            for (Map.Entry<Long, Integer> entry : lateColumns.entrySet()) {
+                totals[(int) (long) entry.getKey()] += entry.getValue();
+            }
+        }
+        return totals;
+    }
+    
+    private Chunk chunk(int row) {
+        return chunks[row / chunkRows];
+    }
+    
+    private void setQuantity(int row, int typeId, int quantity) {
+        if (typeId < columns) {
+            chunk(row).quantities[(row % chunkRows) * columns + typeId] = quantity;
+            return;
+        }
+        synchronized (this) {
+            if (quantity == 0) {
+                lateColumns.remove(key(row, typeId));
+            } else {
+                lateColumns.put(key(row, typeId), quantity);
+            }
+        }
+    }
+    
+    private static long key(int row, int typeId) {
+        return (long) row << 32 | typeId;
+    }
+    
+    /**
+     * Fixed block of rows
+     */
+    private static final class Chunk {
+        final String[] familyIds;
+        final int[] quantities;
+        final int[] values;
+        final int[] weights;
+        final int[] typeCounts;
+        final double[] scores;
+        
+        Chunk(int rows, int columns) {
+            familyIds = new String[rows];
+            quantities = new int[rows * columns];
+            values = new int[rows];
+            weights = new int[rows];
+            typeCounts = new int[rows];
+            scores = new double[rows];
+        }
+    }
+}
\ No newline at end of file
@@ -1,130 +1,250 @@
-import java.util.*;
-
-/**
- * Represents the result of supply allocation for a family
- */
-public class AllocationResult {
-    private String familyId;
-    private Map<String, Integer> allocatedSupplies;
-    private int totalValue;
-    private int totalWeight;
-    private double allocationScore;
-    
-    public AllocationResult(String familyId) {
-        this.familyId = familyId;
-        this.allocatedSupplies = new HashMap<>();
-        this.totalValue = 0;
-        this.totalWeight = 0;
-        this.allocationScore = 0.0;
-    }
-    
-    /**
-     * Add allocated supply
-     */
-    public void addAllocatedSupply(String supplyName, int quantity, int unitValue, int unitWeight) {
-        if (quantity > 0) {
-            allocatedSupplies.put(supplyName, allocatedSupplies.getOrDefault(supplyName, 0) + quantity);
-            totalValue += quantity * unitValue;
-            totalWeight += quantity * unitWeight;
-        }
-    }
-    
-    /**
-     * Remove allocated supply
-     */
-    public void removeAllocatedSupply(String supplyName) {
-        allocatedSupplies.remove(supplyName);
-        // Note: This doesn't update totalValue/totalWeight - use recalculate() if needed
-    }
-    
-    /**
-     * Check if family received any supplies
-     */
-    public boolean hasAllocations() {
-        return !allocatedSupplies.isEmpty() && totalValue > 0;
-    }
-    
-    /**
-     * Get allocated quantity for specific supply
-     */
-    public int getAllocatedQuantity(String supplyName) {
-        return allocatedSupplies.getOrDefault(supplyName, 0);
-    }
-    
-    /**
-     * Get all allocated supplies
-     */
-    public Map<String, Integer> getAllocatedSupplies() {
-        return new HashMap<>(allocatedSupplies);
-    }
-    
-    /**
-     * Calculate allocation score based on value and weight efficiency
-     */
-    public void calculateAllocationScore(double familyPriority) {
-        if (totalWeight > 0) {
-            allocationScore = (double) totalValue / totalWeight * familyPriority;
-        } else {
-            allocationScore = 0.0;
-        }
-    }
-    
-    // Getters
-    public String getFamilyId() { return familyId; }
-    public int getTotalValue() { return totalValue; }
-    public int getTotalWeight() { return totalWeight; }
-    public double getAllocationScore() { return allocationScore; }
-    
-    /**
-     * Get formatted allocation summary
-     */
-    public String getAllocationSummary() {
-        if (!hasAllocations()) {
-            return String.format("Family %s: No supplies allocated", familyId);
-        }
-        
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("Family %s:\n", familyId));
-        
-        for (Map.Entry<String, Integer> entry : allocatedSupplies.entrySet()) {
-            sb.append(String.format("  - %s: %d units\n", entry.getKey(), entry.getValue()));
-        }
-        
-        sb.append(String.format("  Total Value: %d, Total Weight: %d, Score: %.2f\n", 
-                totalValue, totalWeight, allocationScore));
-        
-        return sb.toString();
-    }
-    
-    /**
-     * Get CSV formatted string
-     */
-    public String toCSV() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(familyId);
-        
-        // Add each supply allocation
-        for (Map.Entry<String, Integer> entry : allocatedSupplies.entrySet()) {
-            sb.append(",").append(entry.getKey()).append(":").append(entry.getValue());
-        }
-        
-        sb.append(",").append(totalValue).append(",").append(totalWeight).append(",").append(String.format("%.2f", allocationScore));
-        
-        return sb.toString();
-    }
-    
-    @Override
-    public String toString() {
-        return getAllocationSummary();
-    }
-    
-    /**
-     * Clear all allocations
-     */
-    public void clear() {
-        allocatedSupplies.clear();
-        totalValue = 0;
-        totalWeight = 0;
-        allocationScore = 0.0;
-    }
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Represents the result of supply allocation for a family.
+ * A result is a view of one row of an AllocationMatrix; results created with
+ * the public constructor get a one-row matrix of their own.
+ */
+public class AllocationResult {
+    private final AllocationMatrix matrix;
+    private final int row;
+    
+    public AllocationResult(String familyId) {
+        this.matrix = new AllocationMatrix(1);
+        this.row = matrix.addRow(familyId);
+    }
+    
+    /**
+     * View of an existing matrix row
+     */
+    AllocationResult(AllocationMatrix matrix, int row) {
+        this.matrix = matrix;
+        this.row = row;
+    }
+    
+    /**
+     * Add allocated supply
+     */
+    public void addAllocatedSupply(String supplyName, int quantity, int unitValue, int unitWeight) {
+        addAllocatedSupply(SupplyTypeRegistry.register(supplyName), quantity, unitValue, unitWeight);
+    }
+    
+    /**
+     * Add allocated supply by type ID
+     */
+    public void addAllocatedSupply(int typeId, int quantity, int unitValue, int unitWeight) {
+        matrix.add(row, typeId, quantity, unitValue, unitWeight);
+    }
+    
+    /**
+     * Remove allocated supply
+     */
+    public void removeAllocatedSupply(String supplyName) {
+        int typeId = SupplyTypeRegistry.idOf(supplyName);
+        if (typeId >= 0) {
+            matrix.clearType(row, typeId);
+        }
+        // Note: This doesn't update totalValue/totalWeight - use recalculate() if needed
+    }
+    
+    /**
+     * Keep the lots this result's claims drew from, so that returning its
+     * stock refills them (an empty record is not kept)
+     */
+    public void setLotDraws(LotDraws draws) {
+        matrix.setLotDraws(row, draws);
+    }
+    
+    /**
+     * Lots this result's claims drew from, or null if none
+     */
+    public LotDraws getLotDraws() {
+        return matrix.getLotDraws(row);
+    }
+    
+    /**
+     * Check if family received any supplies
+     */
+    public boolean hasAllocations() {
+        return matrix.getTypeCount(row) > 0 && matrix.getTotalValue(row) > 0;
+    }
+    
+    /**
+     * Get allocated quantity for specific supply
+     */
+    public int getAllocatedQuantity(String supplyName) {
+        return getAllocatedQuantity(SupplyTypeRegistry.idOf(supplyName));
+    }
+    
+    /**
+     * Get allocated quantity for a supply type ID
+     */
+    public int getAllocatedQuantity(int typeId) {
+        return matrix.getQuantity(row, typeId);
+    }
+    
+    /**
+     * Check whether another result gives out exactly the same supplies
+     */
+    public boolean hasSameAllocation(AllocationResult other) {
+        if (other == null
+                || !getFamilyId().equals(other.getFamilyId())
+                || getTotalValue() != other.getTotalValue()
+                || getTotalWeight() != other.getTotalWeight()
+                || matrix.getTypeCount(row) != other.matrix.getTypeCount(other.row)) {
+            return false;
+        }
+        int columns = Math.max(matrix.typeColumns(), other.matrix.typeColumns());
+        for (int typeId = 0; typeId < columns; typeId++) {
+            if (getAllocatedQuantity(typeId) != other.getAllocatedQuantity(typeId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Visit each allocated supply (name and units) without building a map
+     */
+    public void forEachAllocatedSupply(ObjIntConsumer<String> action) {
+        int remaining = matrix.getTypeCount(row);
+        for (int typeId = 0, columns = matrix.typeColumns(); typeId < columns && remaining > 0; typeId++) {
+            int quantity = matrix.getQuantity(row, typeId);
+            if (quantity != 0) {
+                action.accept(SupplyTypeRegistry.nameOf(typeId), quantity);
+                remaining--;
+            }
+        }
+    }
+    
+    /**
+     * Get all allocated supplies as a read-only map backed by this result
+     */
+    public Map<String, Integer> getAllocatedSupplies() {
+        return new AbstractMap<String, Integer>() {
+            @Override
+            public Integer get(Object key) {
+                int quantity = key instanceof String ? getAllocatedQuantity((String) key) : 0;
+                return quantity != 0 ? quantity : null;
+            }
+            
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+            
+            @Override
+            public int size() {
+                return matrix.getTypeCount(row);
+            }
+            
+            @Override
+            public Set<Map.Entry<String, Integer>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Integer>>() {
+                    @Override
+                    public int size() {
+                        return matrix.getTypeCount(row);
+                    }
+                    
+                    @Override
+                    public Iterator<Map.Entry<String, Integer>> iterator() {
+                        return new Iterator<Map.Entry<String, Integer>>() {
+                            private int next = advance(0);
+                            
+                            private int advance(int from) {
+                                int columns = matrix.typeColumns();
+                                while (from < columns && matrix.getQuantity(row, from) == 0) {
+                                    from++;
+                                }
+                                return from;
+                            }
+                            
+                            @Override
+                            public boolean hasNext() {
+                                return next < matrix.typeColumns();
+                            }
+                            
+                            @Override
+                            public Map.Entry<String, Integer> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                int typeId = next;
+                                next = advance(typeId + 1);
+                                return new AbstractMap.SimpleImmutableEntry<>(
+                                        SupplyTypeRegistry.nameOf(typeId), matrix.getQuantity(row, typeId));
+                            }
+                        };
+                    }
+                };
+            }
+        };
+    }
+    
+    /**
+     * Calculate allocation score based on value and weight efficiency
+     */
+    public void calculateAllocationScore(double familyPriority) {
+        int totalWeight = getTotalWeight();
+        if (totalWeight > 0) {
+            matrix.setScore(row, (double) getTotalValue() / totalWeight * familyPriority);
+        } else {
+            matrix.setScore(row, 0.0);
+        }
+    }
+    
+    // Getters
+    public String getFamilyId() { return matrix.getFamilyId(row); }
+    public int getTotalValue() { return matrix.getTotalValue(row); }
+    public int getTotalWeight() { return matrix.getTotalWeight(row); }
+    public double getAllocationScore() { return matrix.getScore(row); }
+    AllocationMatrix getMatrix() { return matrix; }
+    int getRow() { return row; }
+    
+    /**
+     * Get formatted allocation summary
+     */
+    public String getAllocationSummary() {
+        if (!hasAllocations()) {
+            return String.format("Family %s: No supplies allocated", getFamilyId());
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Family %s:\n", getFamilyId()));
+        
+        forEachAllocatedSupply((name, quantity) -> sb.append(String.format("  - %s: %d units\n", name, quantity)));
+        
+        sb.append(String.format("  Total Value: %d, Total Weight: %d, Score: %.2f\n",
+                getTotalValue(), getTotalWeight(), getAllocationScore()));
+        
+        return sb.toString();
+    }
+    
+    /**
+     * Get CSV formatted string
+     */
+    public String toCSV() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getFamilyId());
+        
+        // Add each supply allocation
+        forEachAllocatedSupply((name, quantity) -> sb.append(",").append(name).append(":").append(quantity));
+        
+        sb.append(",").append(getTotalValue()).append(",").append(getTotalWeight()).append(",").append(String.format("%.2f", getAllocationScore()));
+        
+        return sb.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return getAllocationSummary();
+    }
+    
+    /**
+     * Clear all allocations
+     */
+    public void clear() {
+        matrix.clearRow(row);
+    }
 }
\ No newline at end of file
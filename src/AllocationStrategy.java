@@ -0,0 +1,43 @@
+import java.util.*;
+
+/**
+ * Decides how the supplies of an allocator's inventory are split across families
+ * in one allocation run.
+ */
+public interface AllocationStrategy {
+    
+    /**
+     * Allocate supplies to the given families
+     * @param allocator Allocator providing the inventory, capacity rules and listeners
+     * @param families Active families in priority order
+     * @return One result per family, in the same order as families
+     */
+    List<AllocationResult> allocate(SupplyAllocator allocator, List<Family> families);
+    
+    /**
+     * Allocate supplies to rows of a family table.
+     * By default the rows are passed to allocate() as Family views.
+     * @param rows Active rows in priority order
+     * @return One result per row, in the same order as rows
+     */
+    default List<AllocationResult> allocate(SupplyAllocator allocator, FamilyTable table, int[] rows) {
+        return allocate(allocator, table.asFamilyList(rows));
+    }
+    
+    /**
+     * Whether results for a prefix of the priority order are independent of the
+     * families after it, so that an incremental rebalance may recompute only a
+     * suffix of the order
+     */
+    default boolean supportsSuffixRecompute() {
+        return true;
+    }
+    
+    /**
+     * Put the stock held by earlier results back before they are recomputed.
+     * By default it goes back into the allocator's inventory.
+     */
+    default void returnStock(SupplyAllocator allocator, List<AllocationResult> results) {
+        allocator.restockResults(results);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+import java.util.*;
+
+/**
+ * Bounded multi-item knapsack solver working on primitive arrays.
+ * Each item may be taken up to its bound; bounds are split into binary pieces
+ * (1, 2, 4, ...) so the problem reduces to a 0/1 knapsack over the pieces.
+ * Instances keep their DP tables between calls and are not thread-safe; use
+ * forCurrentThread() to get the scratch instance owned by the calling thread.
+ */
+public class BoundedKnapsackSolver {
+    private static final ThreadLocal<BoundedKnapsackSolver> SCRATCH =
+            ThreadLocal.withInitial(BoundedKnapsackSolver::new);
+    
+    // Item arrays filled through addItem()
+    private int[] values = new int[16];
+    private int[] weights = new int[16];
+    private int[] bounds = new int[16];
+    private int[] take = new int[16];
+    private int itemCount;
+    
+    // DP scratch space
+    private int[] best = new int[64];
+    private int[] pieceItem = new int[64];
+    private int[] pieceUnits = new int[64];
+    private boolean[] taken = new boolean[4096];
+    
+    /**
+     * Get the solver owned by the current thread
+     */
+    public static BoundedKnapsackSolver forCurrentThread() {
+        return SCRATCH.get();
+    }
+    
+    /**
+     * Clear the items added through addItem()
+     */
+    public void reset() {
+        itemCount = 0;
+    }
+    
+    /**
+     * Add an item to the current problem
+     * @return index of the item, used with getTaken()
+     */
+    public int addItem(int value, int weight, int bound) {
+        if (itemCount == values.length) {
+            int newLength = itemCount * 2;
+            values = Arrays.copyOf(values, newLength);
+            weights = Arrays.copyOf(weights, newLength);
+            bounds = Arrays.copyOf(bounds, newLength);
+            take = Arrays.copyOf(take, newLength);
+        }
+        values[itemCount] = value;
+        weights[itemCount] = weight;
+        bounds[itemCount] = bound;
+        return itemCount++;
+    }
+    
+    /**
+     * Solve the problem built with addItem()
+     * @return best total value
+     */
+    public int solve(int capacity) {
+        return solve(values, weights, bounds, itemCount, capacity, take);
+    }
+    
+    /**
+     * Units of an item chosen by the last solve()
+     */
+    public int getTaken(int index) {
+        return take[index];
+    }
+    
+    /**
+     * Solve max sum(values[i] * take[i]) subject to
+     * sum(weights[i] * take[i]) <= capacity and 0 <= take[i] <= bounds[i]
+     * @param take Output array receiving the chosen units per item
+     * @return best total value
+     */
+    public int solve(int[] values, int[] weights, int[] bounds, int itemCount, int capacity, int[] take) {
+        Arrays.fill(take, 0, itemCount, 0);
+        capacity = Math.max(0, capacity);
+        
+        int freeValue = 0;
+        int pieces = 0;
+        for (int i = 0; i < itemCount; i++) {
+            int bound = bounds[i];
+            if (bound <= 0 || values[i] <= 0) continue;
+            
+            if (weights[i] <= 0) {
+                // Weightless items never compete for capacity
+                take[i] = bound;
+                freeValue += bound * values[i];
+                continue;
+            }
+            
+            bound = Math.min(bound, capacity / weights[i]);
+            for (int units = 1; bound > 0; units <<= 1) {
+                int piece = Math.min(units, bound);
+                if (pieces == pieceItem.length) {
+                    pieceItem = Arrays.copyOf(pieceItem, pieces * 2);
+                    pieceUnits = Arrays.copyOf(pieceUnits, pieces * 2);
+                }
+                pieceItem[pieces] = i;
+                pieceUnits[pieces] = piece;
+                pieces++;
+                bound -= piece;
+            }
+        }
+        
+        int width = capacity + 1;
+        if (best.length < width) {
+            best = new int[Math.max(width, best.length * 2)];
+        }
+        if (taken.length < pieces * width) {
+            taken = new boolean[Math.max(pieces * width, taken.length * 2)];
+        }
+        Arrays.fill(best, 0, width, 0);
+        
+        for (int p = 0; p < pieces; p++) {
+            int item = pieceItem[p];
+            int pieceWeight = weights[item] * pieceUnits[p];
+            int pieceValue = values[item] * pieceUnits[p];
+            int row = p * width;
+            
+            for (int c = capacity; c >= pieceWeight; c--) {
+                int candidate = best[c - pieceWeight] + pieceValue;
+                if (candidate > best[c]) {
+                    best[c] = candidate;
+                    taken[row + c] = true;
+                } else {
+                    taken[row + c] = false;
+                }
+            }
+            Arrays.fill(taken, row, row + Math.min(pieceWeight, width), false);
+        }
+        
+        // Walk the decisions backwards to recover the chosen units
+        int c = capacity;
+        for (int p = pieces - 1; p >= 0; p--) {
+            if (taken[p * width + c]) {
+                int item = pieceItem[p];
+                take[item] += pieceUnits[p];
+                c -= weights[item] * pieceUnits[p];
+            }
+        }
+        
+        return best[capacity] + freeValue;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,73 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inventory that can be drawn from by many threads at once.
+ * Supplies are stored as ConcurrentSupply, so claims are lock-free CAS
+ * reservations instead of check-then-act updates. Weight and unit totals are
+ * striped LongAdder counters, so threads posting donations or claiming stock
+ * do not contend on one shared field.
+ */
+public class ConcurrentInventory extends Inventory {
+    private final LongAdder weight = new LongAdder();
+    private final LongAdder units = new LongAdder();
+    
+    public ConcurrentInventory(int maxCapacity) {
+        this(maxCapacity, true);
+    }
+    
+    ConcurrentInventory(int maxCapacity, boolean withDefaults) {
+        super(maxCapacity, new ConcurrentHashMap<>(), false);
+        // Added here rather than by Inventory so the counters exist first
+        if (withDefaults) {
+            initializeDefaultSupplies();
+        }
+    }
+    
+    /**
+     * Working copy of a snapshot (see InventorySnapshot.toConcurrentInventory)
+     */
+    ConcurrentInventory(InventorySnapshot snapshot) {
+        this(snapshot.getMaxCapacity(), false);
+        loadFrom(snapshot);
+    }
+    
+    /**
+     * Create a concurrent copy of an existing inventory
+     */
+    public static ConcurrentInventory copyOf(Inventory source) {
+        return source.snapshot().toConcurrentInventory();
+    }
+    
+    @Override
+    protected Supply adopt(Supply supply) {
+        return ConcurrentSupply.of(supply);
+    }
+    
+    @Override
+    protected void addToTotals(long weightDelta, long unitDelta) {
+        weight.add(weightDelta);
+        units.add(unitDelta);
+    }
+    
+    @Override
+    protected long weightTotal() {
+        return weight.sum();
+    }
+    
+    @Override
+    protected long unitTotal() {
+        return units.sum();
+    }
+    
+    @Override
+    protected void resetTotals() {
+        weight.reset();
+        units.reset();
+    }
+    
+    @Override
+    public Inventory createCopy() {
+        return snapshot().toConcurrentInventory();
+    }
+}
\ No newline at end of file
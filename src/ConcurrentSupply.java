@@ -0,0 +1,117 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Supply whose quantity can be claimed and replenished from many threads.
+ * All quantity changes are lock-free compare-and-set loops on one counter.
+ * Once dated lots have been received, reductions also hold the supply's
+ * monitor so the counter and the lots move together.
+ */
+public class ConcurrentSupply extends Supply {
+    private final AtomicInteger available;
+    
+    public ConcurrentSupply(String name, int weight, int value, int quantity, String unit) {
+        super(name, weight, value, 0, unit);
+        this.available = new AtomicInteger(Math.max(0, quantity));
+    }
+    
+    /**
+     * Wrap a plain supply, copying its current quantity
+     */
+    public static ConcurrentSupply of(Supply supply) {
+        if (supply instanceof ConcurrentSupply) {
+            return (ConcurrentSupply) supply;
+        }
+        ConcurrentSupply copy = new ConcurrentSupply(supply.getName(), supply.getWeight(), supply.getValue(),
+                supply.getQuantity(), supply.getUnit());
+        copy.setTypeId(supply.getTypeId());
+        return copy;
+    }
+    
+    @Override
+    public int getQuantity() {
+        return available.get();
+    }
+    
+    @Override
+    public void setQuantity(int quantity) {
+        int after = Math.max(0, quantity);
+        if (hasLots()) {
+            synchronized (this) {
+                int before = available.getAndSet(after);
+                consumeLots(before - after, null);
+                stockChanged(before, after);
+            }
+            return;
+        }
+        stockChanged(available.getAndSet(after), after);
+    }
+    
+    @Override
+    public boolean reduceQuantity(int amount, LotDraws draws) {
+        if (hasLots()) {
+            synchronized (this) {
+                if (!casReduce(amount)) {
+                    return false;
+                }
+                consumeLots(amount, draws);
+                return true;
+            }
+        }
+        return casReduce(amount);
+    }
+    
+    private boolean casReduce(int amount) {
+        while (true) {
+            int current = available.get();
+            if (amount > current) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - amount)) {
+                stockChanged(current, current - amount);
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    public int claimUpTo(int amount, LotDraws draws) {
+        if (amount <= 0) return 0;
+        if (hasLots()) {
+            synchronized (this) {
+                int taken = casClaim(amount);
+                consumeLots(taken, draws);
+                return taken;
+            }
+        }
+        return casClaim(amount);
+    }
+    
+    private int casClaim(int amount) {
+        while (true) {
+            int current = available.get();
+            int taken = Math.min(amount, current);
+            if (taken == 0) {
+                return 0;
+            }
+            if (available.compareAndSet(current, current - taken)) {
+                stockChanged(current, current - taken);
+                return taken;
+            }
+        }
+    }
+    
+    @Override
+    public void addQuantity(int amount) {
+        if (amount > 0) {
+            int after = available.addAndGet(amount);
+            stockChanged(after - amount, after);
+        }
+    }
+    
+    @Override
+    public Supply createCopy(int newQuantity) {
+        ConcurrentSupply copy = new ConcurrentSupply(getName(), getWeight(), getValue(), newQuantity, getUnit());
+        copy.setTypeId(getTypeId());
+        return copy;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+import java.util.*;
+
+/**
+ * Prints allocation progress to the console.
+ * This is the output SupplyAllocator has always produced in interactive mode.
+ */
+public class ConsoleAllocationListener implements AllocationListener {
+    
+    @Override
+    public void onPhaseStarted(String phase, List<Family> families) {
+        System.out.printf("=== %s ===\n", phase);
+        if (families.isEmpty()) {
+            return;
+        }
+        System.out.println("Families sorted by priority:");
+        for (int i = 0; i < families.size(); i++) {
+            System.out.printf("%d. %s\n", i+1, families.get(i));
+        }
+    }
+    
+    @Override
+    public void onFamilyAllocated(Family family, AllocationResult result) {
+        System.out.printf("Allocated to %s (Priority: %.2f): Success\n", 
+                family.getFamilyId(), family.getPriorityScore());
+    }
+    
+    @Override
+    public void onFamilySkipped(Family family, String reason) {
+        System.out.printf("Allocated to %s (Priority: %.2f): %s\n", 
+                family.getFamilyId(), family.getPriorityScore(), reason);
+    }
+    
+    @Override
+    public void onRunSkipped(String reason) {
+        System.out.println(reason);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,270 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Writes allocation results as CSV rows (the format of
+ * ReportGenerator.exportToCSV) straight into a byte channel.
+ *
+ * Rows are encoded into one reusable byte buffer with hand-rolled integer and
+ * fixed-point formatting and supply names encoded once, then handed to the
+ * channel in large writes, so no per-row strings or maps are built. Register
+ * the writer as an AllocationListener to write each family's row as soon as
+ * it is served; the full result list never has to be held. Rebalance runs
+ * fire the same events, so they append rows as well.
+ *
+ * Decimals are rounded the way Formatter does, half up on the shortest
+ * decimal form of the double, so the output is identical to the printf-based
+ * export; only NaN and values of 1e9 or more in the last decimal place (1e7
+ * with two decimals) go through String.format.
+ */
+public class CsvResultWriter implements AllocationListener, AutoCloseable {
+    public static final String HEADER =
+            "Family_ID,Family_Size,Distance,Urgency,Priority_Score,Supplies_Allocated,Total_Value,Total_Weight,Allocation_Score\n";
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int FLUSH_AT = BUFFER_SIZE - (64 << 10); // rows that do not fit grow the buffer
+    private static final long[] SCALES = {1, 10, 100, 1000};
+    private static final double FAST_LIMIT = 1e9; // scaled values above this may round off by one digit
+    private static final int ROW_RESERVE = 160; // a row's numbers, separators and quotes
+    
+    private final WritableByteChannel channel;
+    private final boolean ownsChannel;
+    private final Map<String, byte[]> names = new HashMap<>(); // supply name -> UTF-8
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private long rowCount;
+    private long bytesWritten;
+    private boolean firstSupply;
+    private IOException failure;
+    
+    /**
+     * Write to an existing channel, starting with the header line.
+     * The channel is left open by close().
+     */
+    public CsvResultWriter(WritableByteChannel channel) {
+        this(channel, false);
+    }
+    
+    private CsvResultWriter(WritableByteChannel channel, boolean ownsChannel) {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        appendAscii(HEADER);
+    }
+    
+    /**
+     * Create or truncate a CSV file
+     */
+    public static CsvResultWriter open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new CsvResultWriter(channel, true);
+    }
+    
+    /**
+     * Write one family's row; a null result writes an empty allocation
+     */
+    public synchronized void write(Family family, AllocationResult result) throws IOException {
+        appendRow(family, result);
+        if (position >= FLUSH_AT) {
+            flushBuffer();
+        }
+    }
+    
+    @Override
+    public void onFamilyAllocated(Family family, AllocationResult result) {
+        writeFromListener(family, result);
+    }
+    
+    @Override
+    public void onFamilySkipped(Family family, String reason) {
+        writeFromListener(family, null);
+    }
+    
+    private void writeFromListener(Family family, AllocationResult result) {
+        try {
+            write(family, result);
+        } catch (IOException e) {
+            throw new UncheckedIOException("CSV export failed", e);
+        }
+    }
+    
+    /**
+     * Hand buffered rows to the channel
+     */
+    public synchronized void flush() throws IOException {
+        flushBuffer();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            if (ownsChannel) {
+                channel.close();
+            }
+        }
+    }
+    
+    public synchronized long getRowCount() { return rowCount; }
+    public synchronized long getBytesWritten() { return bytesWritten + position; }
+    
+    /**
+     * Encode one row into the buffer without touching the channel
+     */
+    void appendRow(Family family, AllocationResult result) {
+        String familyId = family.getFamilyId();
+        reserve(familyId.length() * 3 + ROW_RESERVE);
+        appendText(familyId);
+        put(',');
+        putLong(family.getSize());
+        put(',');
+        putFixed(family.getDistance(), 1);
+        put(',');
+        putLong(family.getUrgencyScore());
+        put(',');
+        putFixed(family.getPriorityScore(), 2);
+        put(',');
+        put('"');
+        if (result != null) {
+            firstSupply = true;
+            result.forEachAllocatedSupply(this::appendSupply);
+            reserve(ROW_RESERVE);
+        }
+        put('"');
+        put(',');
+        putLong(result != null ? result.getTotalValue() : 0);
+        put(',');
+        putLong(result != null ? result.getTotalWeight() : 0);
+        put(',');
+        putFixed(result != null ? result.getAllocationScore() : 0.0, 2);
+        put('\n');
+        rowCount++;
+    }
+    
+    private void appendSupply(String name, int quantity) {
+        byte[] encoded = names.computeIfAbsent(name, n -> n.getBytes(StandardCharsets.UTF_8));
+        reserve(encoded.length + 24);
+        if (!firstSupply) {
+            put(';');
+        }
+        firstSupply = false;
+        System.arraycopy(encoded, 0, buffer, position, encoded.length);
+        position += encoded.length;
+        put(':');
+        putLong(quantity);
+    }
+    
+    private void flushBuffer() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        ByteBuffer pending = ByteBuffer.wrap(buffer, 0, position);
+        try {
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        bytesWritten += position;
+        position = 0;
+    }
+    
+    private void reserve(int bytes) {
+        if (position + bytes > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+        }
+    }
+    
+    private void put(char c) {
+        buffer[position++] = (byte) c;
+    }
+    
+    private void appendAscii(String text) {
+        reserve(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+    
+    /**
+     * UTF-8 text; plain ASCII is copied char by char without an encoder
+     */
+    private void appendText(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                reserve(encoded.length);
+                System.arraycopy(encoded, 0, buffer, position, encoded.length);
+                position += encoded.length;
+                return;
+            }
+        }
+        appendAscii(text);
+    }
+    
+    /**
+     * Decimal digits of a value; the caller has reserved 20 bytes
+     */
+    private void putLong(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                appendAscii(Long.toString(value));
+                return;
+            }
+            put('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        position += digits;
+        for (int i = position - 1; i >= position - digits; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+    
+    /**
+     * Same digits as String.format("%.<decimals>f", value); the caller has
+     * reserved ROW_RESERVE bytes
+     */
+    private void putFixed(double value, int decimals) {
+        long scale = SCALES[decimals];
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * scale;
+        if (Double.isNaN(value) || scaled >= FAST_LIMIT) {
+            appendText(String.format("%." + decimals + "f", value));
+            reserve(ROW_RESERVE);
+            return;
+        }
+        long floor = (long) scaled;
+        long rounded;
+        if (Math.abs(scaled - floor - 0.5) < 1e-6) {
+            // Formatter rounds the shortest decimal form half up: compare with the double nearest the tie
+            double tie = (floor * 10 + 5) / (scale * 10.0);
+            rounded = magnitude >= tie ? floor + 1 : floor;
+        } else {
+            rounded = Math.round(scaled);
+        }
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            put('-');
+        }
+        putLong(rounded / scale);
+        put('.');
+        long fraction = rounded % scale;
+        for (long unit = scale / 10; unit > 0; unit /= 10) {
+            buffer[position++] = (byte) ('0' + fraction / unit % 10);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk family intake from registration desk CSV files.
+ *
+ * Rows are Family_ID,Family_Size,Distance,Urgency with an optional fifth
+ * Active column (true/false or 1/0); further columns are ignored, and a first
+ * line whose size field is not a number is taken as the header. Rows are
+ * checked against the same limits as the interactive form (size 1-20,
+ * distance 0.1-100 km, urgency 1-10); bad rows are skipped and reported with
+ * their line number.
+ *
+ * The file is memory-mapped and split on line boundaries into chunks that are
+ * parsed in parallel on a ForkJoinPool. Numbers are parsed straight from the
+ * mapped bytes; the family ID is the only string built per row. The parsed
+ * families are inserted with one bulk SupplyAllocator.addFamilies call.
+ */
+public class FamilyCsvImporter {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private static final long MIN_CHUNK = 1L << 20;
+    private static final long MAX_CHUNK = 1L << 30;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private FamilyCsvImporter() {
+    }
+    
+    /**
+     * Parse a file and add its families to the allocator
+     */
+    public static Report importFile(Path path, SupplyAllocator allocator) throws IOException {
+        return importFile(path, allocator, ForkJoinPool.commonPool());
+    }
+    
+    public static Report importFile(Path path, SupplyAllocator allocator, ForkJoinPool pool) throws IOException {
+        Report report = read(path, pool);
+        report.imported = allocator.addFamilies(report.families);
+        return report;
+    }
+    
+    /**
+     * Parse a file without adding the families anywhere
+     */
+    public static Report read(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size, pool.getParallelism());
+            List<ChunkParser> parsers = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                if (bounds[i + 1] > bounds[i]) {
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                    parsers.add(new ChunkParser(chunk, bounds[i] == 0));
+                }
+            }
+            runAll(pool, parsers);
+            
+            Report report = new Report();
+            long lineOffset = 0;
+            for (ChunkParser parser : parsers) {
+                report.families.addAll(parser.families);
+                report.rowsRead += parser.rows;
+                report.errorCount += parser.errorCount;
+                for (RowError error : parser.errors) {
+                    if (report.errors.size() < MAX_REPORTED_ERRORS) {
+                        report.errors.add(new RowError(error.line + lineOffset, error.message));
+                    }
+                }
+                lineOffset += parser.lines;
+            }
+            return report;
+        }
+    }
+    
+    /**
+     * Chunk start offsets (and the file size last), each start just after a newline
+     */
+    private static long[] chunkBounds(FileChannel channel, long size, int parallelism) throws IOException {
+        long chunks = Math.max(1, Math.min(parallelism * 4L, size / MIN_CHUNK));
+        chunks = Math.max(chunks, size / MAX_CHUNK + 1);
+        long[] bounds = new long[(int) chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunks; i++) {
+            long at = Math.max(bounds[i - 1], size * i / chunks - 1);
+            long boundary = size;
+            scan:
+            while (at < size) {
+                probe.clear();
+                int read = channel.read(probe, at);
+                if (read <= 0) {
+                    break;
+                }
+                for (int k = 0; k < read; k++) {
+                    if (probe.get(k) == '\n') {
+                        boundary = at + k + 1;
+                        break scan;
+                    }
+                }
+                at += read;
+            }
+            bounds[i] = boundary;
+        }
+        bounds[(int) chunks] = size;
+        return bounds;
+    }
+    
+    private static void runAll(ForkJoinPool pool, List<ChunkParser> parsers) throws IOException {
+        if (parsers.size() == 1) {
+            parsers.get(0).call();
+            return;
+        }
+        try {
+            for (Future<ChunkParser> future : pool.invokeAll(parsers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    /**
+     * Outcome of an import
+     */
+    public static final class Report {
+        private final List<Family> families = new ArrayList<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private long rowsRead;
+        private long errorCount;
+        private int imported = -1;
+        
+        /**
+         * Valid families in file order
+         */
+        public List<Family> getFamilies() { return families; }
+        
+        /**
+         * Bad rows, at most MAX_REPORTED_ERRORS of them, in file order
+         */
+        public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+        
+        /**
+         * Data rows read (header and blank lines not counted)
+         */
+        public long getRowsRead() { return rowsRead; }
+        public long getErrorCount() { return errorCount; }
+        
+        /**
+         * Families added to the allocator, -1 if the file was only read
+         */
+        public int getImported() { return imported; }
+        
+        /**
+         * Valid rows whose family ID was already registered or repeated in the file
+         */
+        public int getDuplicates() { return imported < 0 ? 0 : families.size() - imported; }
+        
+        @Override
+        public String toString() {
+            return String.format("Read %d rows: %d valid, %d rejected%s", rowsRead, families.size(), errorCount,
+                    imported < 0 ? "" : String.format(", %d imported, %d duplicates", imported, getDuplicates()));
+        }
+    }
+    
+    /**
+     * A rejected row
+     */
+    public static final class RowError {
+        private final long line;
+        private final String message;
+        
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+        
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+    
+    /**
+     * Parses the lines of one mapped chunk
+     */
+    private static final class ChunkParser implements Callable<ChunkParser> {
+        private final MappedByteBuffer buffer;
+        private final boolean firstChunk;
+        private final List<Family> families = new ArrayList<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private long lines;
+        private long rows;
+        private long errorCount;
+        private byte[] scratch = new byte[64];
+        
+        // Line cursor
+        private int lineEnd;
+        private int pos;
+        private int fieldStart;
+        private int fieldEnd;
+        
+        ChunkParser(MappedByteBuffer buffer, boolean firstChunk) {
+            this.buffer = buffer;
+            this.firstChunk = firstChunk;
+        }
+        
+        @Override
+        public ChunkParser call() {
+            int limit = buffer.limit();
+            int start = 0;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && buffer.get(end) != '\n') {
+                    end++;
+                }
+                lines++;
+                lineEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+                if (lineEnd > start) {
+                    parseLine(start);
+                }
+                start = end + 1;
+            }
+            return this;
+        }
+        
+        private void parseLine(int start) {
+            pos = start;
+            if (!nextField()) {
+                return;
+            }
+            int idStart = fieldStart;
+            int idEnd = fieldEnd;
+            if (isBlank(start)) {
+                return;
+            }
+            
+            boolean hasSize = nextField();
+            int size = hasSize ? parseInt() : Integer.MIN_VALUE;
+            if (firstChunk && lines == 1 && hasSize && size == Integer.MIN_VALUE) {
+                return; // header
+            }
+            rows++;
+            if (idEnd <= idStart) {
+                reject("missing family ID");
+                return;
+            }
+            if (!hasSize) {
+                reject("missing size, distance and urgency");
+                return;
+            }
+            if (size == Integer.MIN_VALUE || size < 1 || size > 20) {
+                reject("size must be a whole number from 1 to 20");
+                return;
+            }
+            if (!nextField()) {
+                reject("missing distance and urgency");
+                return;
+            }
+            double distance = parseDouble();
+            if (!(distance >= 0.1 && distance <= 100.0)) {
+                reject("distance must be a number from 0.1 to 100");
+                return;
+            }
+            if (!nextField()) {
+                reject("missing urgency");
+                return;
+            }
+            int urgency = parseInt();
+            if (urgency == Integer.MIN_VALUE || urgency < 1 || urgency > 10) {
+                reject("urgency must be a whole number from 1 to 10");
+                return;
+            }
+            boolean active = true;
+            if (nextField() && fieldEnd > fieldStart) {
+                int flag = parseFlag();
+                if (flag < 0) {
+                    reject("active must be true, false, 1 or 0");
+                    return;
+                }
+                active = flag == 1;
+            }
+            
+            Family family = new Family(text(idStart, idEnd), size, distance, urgency);
+            if (!active) {
+                family.setActive(false);
+            }
+            families.add(family);
+        }
+        
+        private boolean isBlank(int start) {
+            for (int i = start; i < lineEnd; i++) {
+                byte b = buffer.get(i);
+                if (b != ' ' && b != '\t' && b != ',') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Advance to the next comma-separated field; quotes around a field are dropped
+         */
+        private boolean nextField() {
+            if (pos > lineEnd) {
+                return false;
+            }
+            int start = pos;
+            while (start < lineEnd && (buffer.get(start) == ' ' || buffer.get(start) == '\t')) {
+                start++;
+            }
+            int end;
+            if (start < lineEnd && buffer.get(start) == '"') {
+                int close = start + 1;
+                while (close < lineEnd && buffer.get(close) != '"') {
+                    close++;
+                }
+                fieldStart = start + 1;
+                fieldEnd = close;
+                end = close;
+                while (end < lineEnd && buffer.get(end) != ',') {
+                    end++;
+                }
+            } else {
+                end = start;
+                while (end < lineEnd && buffer.get(end) != ',') {
+                    end++;
+                }
+                fieldStart = start;
+                fieldEnd = end;
+                while (fieldEnd > fieldStart && (buffer.get(fieldEnd - 1) == ' ' || buffer.get(fieldEnd - 1) == '\t')) {
+                    fieldEnd--;
+                }
+            }
+            pos = end + 1;
+            return true;
+        }
+        
+        /**
+         * @return The field as a whole number, Integer.MIN_VALUE if it is not one
+         */
+        private int parseInt() {
+            int i = fieldStart;
+            boolean negative = i < fieldEnd && buffer.get(i) == '-';
+            if (negative || (i < fieldEnd && buffer.get(i) == '+')) {
+                i++;
+            }
+            if (i == fieldEnd || fieldEnd - i > 9) {
+                return Integer.MIN_VALUE;
+            }
+            int value = 0;
+            for (; i < fieldEnd; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return Integer.MIN_VALUE;
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+        
+        /**
+         * Plain decimals are parsed from the bytes and round exactly like
+         * Double.parseDouble; anything else goes through it
+         * @return The field as a number, NaN if it is not one
+         */
+        private double parseDouble() {
+            int i = fieldStart;
+            boolean negative = i < fieldEnd && buffer.get(i) == '-';
+            if (negative || (i < fieldEnd && buffer.get(i) == '+')) {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int decimals = -1;
+            for (; i < fieldEnd; i++) {
+                byte b = buffer.get(i);
+                if (b == '.' && decimals < 0) {
+                    decimals = 0;
+                } else if (b >= '0' && b <= '9') {
+                    if (mantissa > 0 || b != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (decimals >= 0) {
+                        decimals++;
+                    }
+                } else {
+                    break;
+                }
+            }
+            if (i == fieldEnd && digits <= 15 && decimals < POWERS_OF_TEN.length
+                    && fieldEnd > fieldStart + (negative ? 1 : 0) + (decimals == 0 ? 1 : 0)) {
+                double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+                return negative ? -value : value;
+            }
+            try {
+                return Double.parseDouble(text(fieldStart, fieldEnd));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        
+        /**
+         * @return 1 for true/1, 0 for false/0, -1 otherwise
+         */
+        private int parseFlag() {
+            String flag = text(fieldStart, fieldEnd);
+            if (flag.equals("1") || flag.equalsIgnoreCase("true")) {
+                return 1;
+            }
+            if (flag.equals("0") || flag.equalsIgnoreCase("false")) {
+                return 0;
+            }
+            return -1;
+        }
+        
+        private String text(int start, int end) {
+            int length = end - start;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            boolean ascii = true;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(start + i);
+                scratch[i] = b;
+                ascii &= b >= 0;
+            }
+            return new String(scratch, 0, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+        
+        private void reject(String reason) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(lines, reason));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,15 @@
+/**
+ * Receives changes to the families of a registry
+ */
+public interface FamilyListener {
+    
+    /**
+     * A family was registered, or its attributes or status changed
+     */
+    default void onFamilyUpdated(Family family) {}
+    
+    /**
+     * A family was removed from the registry
+     */
+    default void onFamilyRemoved(String familyId) {}
+}
\ No newline at end of file
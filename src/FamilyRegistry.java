@@ -0,0 +1,338 @@
+import java.util.*;
+
+/**
+ * Registry of families indexed by ID.
+ * Keeps registration order plus an index of the active families ordered by
+ * priority (highest first, earlier registration first on ties). Registered
+ * families notify the registry when their priority or status changes, so the
+ * allocation order is maintained in O(log n) per change and never re-sorted.
+ * A family reports to the last registry it was added to.
+ */
+public class FamilyRegistry {
+    private static final int RADIX_SORT_MIN = 1 << 12;
+    
+    private final Map<String, Family> families;
+    private final Map<String, PriorityEntry> entries;
+    private final TreeSet<PriorityEntry> activeOrder;
+    private Set<String> changedIds;
+    private long nextSequence;
+    private List<FamilyListener> listeners = new ArrayList<>();
+    
+    public FamilyRegistry() {
+        this(16);
+    }
+    
+    public FamilyRegistry(Collection<Family> initialFamilies) {
+        this(initialFamilies.size());
+        addAll(initialFamilies);
+    }
+    
+    /**
+     * Indexes sized for the expected number of families, so they are not
+     * rehashed while a large initial batch is added
+     */
+    private FamilyRegistry(int expected) {
+        int capacity = (int) Math.min(1 << 30, expected * 4L / 3 + 1);
+        this.families = new LinkedHashMap<>(capacity);
+        this.entries = new HashMap<>(capacity);
+        this.activeOrder = new TreeSet<>();
+        this.changedIds = new HashSet<>(capacity);
+        this.nextSequence = 0;
+    }
+    
+    /**
+     * Register a family
+     * @return false if null or a family with the same ID is already registered
+     */
+    public boolean add(Family family) {
+        PriorityEntry entry = register(family);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.active) {
+            activeOrder.add(entry);
+        }
+        fireUpdated(family);
+        return true;
+    }
+    
+    /**
+     * Register many families. The new entries are put into the priority index
+     * in sorted order, which is several times cheaper than random inserts for
+     * large batches (e.g. restoring a snapshot).
+     * @return Number of families actually added
+     */
+    public int addAll(Collection<Family> newFamilies) {
+        List<PriorityEntry> added = new ArrayList<>(newFamilies.size());
+        for (Family family : newFamilies) {
+            PriorityEntry entry = register(family);
+            if (entry != null) {
+                added.add(entry);
+            }
+        }
+        List<PriorityEntry> active = new ArrayList<>(added.size());
+        for (PriorityEntry entry : added) {
+            if (entry.active) {
+                active.add(entry);
+            }
+        }
+        activeOrder.addAll(sortByPriority(active));
+        for (PriorityEntry entry : added) {
+            fireUpdated(entry.family);
+        }
+        return added.size();
+    }
+    
+    /**
+     * Index a family everywhere except the priority order
+     */
+    private PriorityEntry register(Family family) {
+        if (family == null || families.putIfAbsent(family.getFamilyId(), family) != null) {
+            return null;
+        }
+        PriorityEntry entry = new PriorityEntry(family, nextSequence++);
+        entries.put(family.getFamilyId(), entry);
+        family.attachTo(this);
+        changedIds.add(family.getFamilyId());
+        return entry;
+    }
+    
+    /**
+     * Remove a family by ID
+     * @return The removed family, or null if not registered
+     */
+    public Family remove(String familyId) {
+        Family removed = families.remove(familyId);
+        if (removed != null) {
+            PriorityEntry entry = entries.remove(familyId);
+            if (entry.active) {
+                activeOrder.remove(entry);
+            }
+            removed.detachFrom(this);
+            changedIds.add(familyId);
+            fireRemoved(familyId);
+        }
+        return removed;
+    }
+    
+    /**
+     * Remove many families
+     * @return Number of families actually removed
+     */
+    public int removeAll(Collection<String> familyIds) {
+        int removed = 0;
+        for (String familyId : familyIds) {
+            if (remove(familyId) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    /**
+     * Set a family active or inactive
+     * @return false if the family is not registered
+     */
+    public boolean updateStatus(String familyId, boolean active) {
+        Family family = families.get(familyId);
+        if (family == null) {
+            return false;
+        }
+        family.setActive(active); // reported back through onFamilyChanged
+        return true;
+    }
+    
+    /**
+     * Apply many status changes
+     * @return Number of families found and updated
+     */
+    public int updateStatuses(Map<String, Boolean> statuses) {
+        int updated = 0;
+        for (Map.Entry<String, Boolean> entry : statuses.entrySet()) {
+            if (updateStatus(entry.getKey(), entry.getValue())) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+    
+    /**
+     * Called by a registered family after its priority or status changed
+     */
+    void onFamilyChanged(Family family) {
+        PriorityEntry entry = entries.get(family.getFamilyId());
+        if (entry == null || entry.family != family) {
+            return;
+        }
+        if (entry.active) {
+            activeOrder.remove(entry);
+        }
+        entry.priority = family.getPriorityScore();
+        entry.active = family.isActive();
+        if (entry.active) {
+            activeOrder.add(entry);
+        }
+        changedIds.add(family.getFamilyId());
+        fireUpdated(family);
+    }
+    
+    /**
+     * Register a listener for family changes
+     */
+    public void addListener(FamilyListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+    
+    public boolean removeListener(FamilyListener listener) {
+        return listeners.remove(listener);
+    }
+    
+    private void fireUpdated(Family family) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFamilyUpdated(family);
+        }
+    }
+    
+    private void fireRemoved(String familyId) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFamilyRemoved(familyId);
+        }
+    }
+    
+    /**
+     * IDs of families added, removed or changed since the last call
+     */
+    public Set<String> drainChangedIds() {
+        Set<String> drained = changedIds;
+        changedIds = new HashSet<>();
+        return drained;
+    }
+    
+    // Lookups
+    public Family get(String familyId) { return families.get(familyId); }
+    public boolean contains(String familyId) { return families.containsKey(familyId); }
+    public int size() { return families.size(); }
+    public int activeCount() { return activeOrder.size(); }
+    public boolean isEmpty() { return families.isEmpty(); }
+    
+    /**
+     * All families in registration order (read-only view)
+     */
+    public Collection<Family> getAll() {
+        return Collections.unmodifiableCollection(families.values());
+    }
+    
+    /**
+     * Active families in allocation order, highest priority first (read-only view)
+     */
+    public Collection<Family> getActive() {
+        return new AbstractCollection<Family>() {
+            @Override
+            public Iterator<Family> iterator() {
+                Iterator<PriorityEntry> it = activeOrder.iterator();
+                return new Iterator<Family>() {
+                    public boolean hasNext() { return it.hasNext(); }
+                    public Family next() { return it.next().family; }
+                };
+            }
+            
+            @Override
+            public int size() {
+                return activeOrder.size();
+            }
+        };
+    }
+    
+    /**
+     * Remove all families
+     */
+    public void clear() {
+        for (Family family : families.values()) {
+            family.detachFrom(this);
+            changedIds.add(family.getFamilyId());
+            fireRemoved(family.getFamilyId());
+        }
+        families.clear();
+        entries.clear();
+        activeOrder.clear();
+    }
+    
+    /**
+     * Entries in index order. They arrive in sequence order, so a stable sort
+     * on priority alone is enough; large batches use an LSD radix sort on the
+     * priority bits, which avoids comparing scattered objects.
+     */
+    private static List<PriorityEntry> sortByPriority(List<PriorityEntry> entries) {
+        int n = entries.size();
+        if (n < RADIX_SORT_MIN) {
+            Collections.sort(entries);
+            return entries;
+        }
+        long[] keys = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            long bits = Double.doubleToLongBits(entries.get(i).priority);
+            keys[i] = ~(bits ^ ((bits >> 63) | Long.MIN_VALUE)); // ascending key = descending Double.compare order
+            order[i] = i;
+        }
+        long[] keyBuffer = new long[n];
+        int[] orderBuffer = new int[n];
+        int[] counts = new int[256];
+        for (int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) (keys[i] >>> shift) & 0xFF]++;
+            }
+            if (counts[(int) (keys[0] >>> shift) & 0xFF] == n) {
+                continue; // every key has the same byte here
+            }
+            for (int b = 0, sum = 0; b < 256; b++) {
+                int count = counts[b];
+                counts[b] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < n; i++) {
+                int slot = counts[(int) (keys[i] >>> shift) & 0xFF]++;
+                keyBuffer[slot] = keys[i];
+                orderBuffer[slot] = order[i];
+            }
+            long[] swapKeys = keys;
+            keys = keyBuffer;
+            keyBuffer = swapKeys;
+            int[] swapOrder = order;
+            order = orderBuffer;
+            orderBuffer = swapOrder;
+        }
+        List<PriorityEntry> sorted = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sorted.add(entries.get(order[i]));
+        }
+        return sorted;
+    }
+    
+    /**
+     * Position of a family in the priority index. The key is copied from the
+     * family so the tree stays consistent while the family itself changes.
+     */
+    private static class PriorityEntry implements Comparable<PriorityEntry> {
+        final Family family;
+        final long sequence;
+        double priority;
+        boolean active;
+        
+        PriorityEntry(Family family, long sequence) {
+            this.family = family;
+            this.sequence = sequence;
+            this.priority = family.getPriorityScore();
+            this.active = family.isActive();
+        }
+        
+        @Override
+        public int compareTo(PriorityEntry other) {
+            int byPriority = Double.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,365 @@
+import java.util.*;
+
+/**
+ * Column store for large family populations.
+ *
+ * Every attribute lives in its own primitive array indexed by row, so a few
+ * million families cost a handful of arrays instead of millions of Family and
+ * String objects. IDs are dictionary encoded: an ID such as "FAM004211" is
+ * split into a prefix ("FAM"), kept once in a dictionary, and a number with its
+ * digit width; IDs without a numeric tail are stored as a prefix alone.
+ * Rows are found by ID through an open-addressing index over the encoded form.
+ *
+ * Rows are never removed; deactivate them instead. Family objects for existing
+ * callers are available as views (see view and asFamilyList) that read and
+ * write the table directly. Not thread-safe.
+ */
+public class FamilyTable {
+    private static final int MAX_NUMBER_DIGITS = 18; // fits in a long
+    
+    private int rowCount;
+    private int[] sizes;
+    private double[] distances;
+    private byte[] urgencies;
+    private boolean[] active;
+    private double[] priorities;
+    private int activeCount;
+    
+    // Dictionary-encoded IDs
+    private int[] idPrefix;
+    private long[] idNumber; // -1 when the ID has no numeric tail
+    private byte[] idWidth;
+    private final List<String> prefixes = new ArrayList<>();
+    private final Map<String, Integer> prefixCodes = new HashMap<>();
+    private int[] index; // row + 1 per slot, 0 when empty
+    
+    public FamilyTable() {
+        this(1024);
+    }
+    
+    public FamilyTable(int expectedRows) {
+        int capacity = Math.max(16, expectedRows);
+        sizes = new int[capacity];
+        distances = new double[capacity];
+        urgencies = new byte[capacity];
+        active = new boolean[capacity];
+        priorities = new double[capacity];
+        idPrefix = new int[capacity];
+        idNumber = new long[capacity];
+        idWidth = new byte[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) * 2];
+    }
+    
+    /**
+     * Build a table holding the given families
+     */
+    public static FamilyTable of(Collection<Family> families) {
+        FamilyTable table = new FamilyTable(families.size());
+        for (Family family : families) {
+            int row = table.add(family.getFamilyId(), family.getSize(), family.getDistance(),
+                    family.getUrgencyScore());
+            if (row >= 0 && !family.isActive()) {
+                table.setActive(row, false);
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Add a family
+     * @return The new row, or -1 if the ID is already present
+     */
+    public int add(String familyId, int size, double distance, int urgencyScore) {
+        if (familyId == null || rowOf(familyId) >= 0) {
+            return -1;
+        }
+        if (rowCount == sizes.length) {
+            grow();
+        }
+        
+        int row = rowCount++;
+        encodeId(row, familyId);
+        sizes[row] = size;
+        distances[row] = distance;
+        urgencies[row] = (byte) Family.clampUrgency(urgencyScore);
+        active[row] = true;
+        activeCount++;
+        updatePriority(row);
+        insertIntoIndex(row);
+        return row;
+    }
+    
+    /**
+     * Find the row of a family ID
+     * @return Row, or -1 if not present
+     */
+    public int rowOf(String familyId) {
+        int tail = numericTailStart(familyId);
+        String prefix = tail < 0 ? familyId : familyId.substring(0, tail);
+        Integer code = prefixCodes.get(prefix);
+        if (code == null) {
+            return -1;
+        }
+        long number = tail < 0 ? -1 : Long.parseLong(familyId.substring(tail));
+        int width = tail < 0 ? 0 : familyId.length() - tail;
+        
+        int mask = index.length - 1;
+        for (int slot = hash(code, number, width) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int row = index[slot] - 1;
+            if (idPrefix[row] == code && idNumber[row] == number && idWidth[row] == width) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    // Row accessors
+    public String getFamilyId(int row) {
+        String prefix = prefixes.get(idPrefix[row]);
+        long number = idNumber[row];
+        if (number < 0) {
+            return prefix;
+        }
+        StringBuilder sb = new StringBuilder(prefix.length() + idWidth[row]).append(prefix);
+        String digits = Long.toString(number);
+        for (int pad = idWidth[row] - digits.length(); pad > 0; pad--) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+    
+    public int getSize(int row) { return sizes[row]; }
+    public double getDistance(int row) { return distances[row]; }
+    public int getUrgencyScore(int row) { return urgencies[row]; }
+    public boolean isActive(int row) { return active[row]; }
+    public double getPriorityScore(int row) { return priorities[row]; }
+    public int rowCount() { return rowCount; }
+    public int activeCount() { return activeCount; }
+    
+    public void setSize(int row, int size) {
+        sizes[row] = size;
+        updatePriority(row);
+    }
+    
+    public void setDistance(int row, double distance) {
+        distances[row] = distance;
+        updatePriority(row);
+    }
+    
+    public void setUrgencyScore(int row, int urgencyScore) {
+        urgencies[row] = (byte) Family.clampUrgency(urgencyScore);
+        updatePriority(row);
+    }
+    
+    public void setActive(int row, boolean isActive) {
+        if (active[row] != isActive) {
+            active[row] = isActive;
+            activeCount += isActive ? 1 : -1;
+        }
+    }
+    
+    /**
+     * Active rows, highest priority first (ties keep insertion order)
+     */
+    public int[] activeRowsByPriority() {
+        int[] rows = new int[activeCount];
+        int n = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (active[row]) {
+                rows[n++] = row;
+            }
+        }
+        sortByPriority(rows, new int[n], 0, n);
+        return rows;
+    }
+    
+    /**
+     * Family view of one row; reads and writes go to the table
+     */
+    public Family view(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rowCount);
+        }
+        return new Row(row);
+    }
+    
+    /**
+     * All rows as Family views, in row order (views are created on access)
+     */
+    public List<Family> asFamilyList() {
+        return new AbstractList<Family>() {
+            @Override
+            public Family get(int i) {
+                return view(i);
+            }
+            
+            @Override
+            public int size() {
+                return rowCount;
+            }
+        };
+    }
+    
+    /**
+     * The given rows as Family views, in the given order
+     */
+    public List<Family> asFamilyList(int[] rows) {
+        return new AbstractList<Family>() {
+            @Override
+            public Family get(int i) {
+                return view(rows[i]);
+            }
+            
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+    
+    private void updatePriority(int row) {
+        priorities[row] = Family.priorityOf(sizes[row], distances[row], urgencies[row]);
+    }
+    
+    private void encodeId(int row, String familyId) {
+        int tail = numericTailStart(familyId);
+        String prefix = tail < 0 ? familyId : familyId.substring(0, tail);
+        Integer code = prefixCodes.get(prefix);
+        if (code == null) {
+            code = prefixes.size();
+            prefixes.add(prefix);
+            prefixCodes.put(prefix, code);
+        }
+        idPrefix[row] = code;
+        idNumber[row] = tail < 0 ? -1 : Long.parseLong(familyId.substring(tail));
+        idWidth[row] = (byte) (tail < 0 ? 0 : familyId.length() - tail);
+    }
+    
+    /**
+     * Start of the trailing digits of an ID, or -1 if it cannot be stored as a number
+     */
+    private static int numericTailStart(String familyId) {
+        int start = familyId.length();
+        while (start > 0 && Character.isDigit(familyId.charAt(start - 1)) && familyId.charAt(start - 1) < 128) {
+            start--;
+        }
+        int digits = familyId.length() - start;
+        return digits == 0 || digits > MAX_NUMBER_DIGITS ? -1 : start;
+    }
+    
+    private static int hash(int code, long number, int width) {
+        long h = (number * 0x9E3779B97F4A7C15L) ^ ((long) code << 8 | width);
+        h ^= h >>> 29;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    private void insertIntoIndex(int row) {
+        if (rowCount * 2 > index.length) {
+            rehash(index.length * 2);
+            return; // rehash already placed every row, including this one
+        }
+        placeInIndex(index, row);
+    }
+    
+    private void placeInIndex(int[] table, int row) {
+        int mask = table.length - 1;
+        int slot = hash(idPrefix[row], idNumber[row], idWidth[row]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = row + 1;
+    }
+    
+    private void rehash(int newLength) {
+        int[] table = new int[newLength];
+        for (int row = 0; row < rowCount; row++) {
+            placeInIndex(table, row);
+        }
+        index = table;
+    }
+    
+    private void grow() {
+        int capacity = sizes.length * 2;
+        sizes = Arrays.copyOf(sizes, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        urgencies = Arrays.copyOf(urgencies, capacity);
+        active = Arrays.copyOf(active, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        idPrefix = Arrays.copyOf(idPrefix, capacity);
+        idNumber = Arrays.copyOf(idNumber, capacity);
+        idWidth = Arrays.copyOf(idWidth, capacity);
+    }
+    
+    /**
+     * Stable merge sort of row numbers by descending priority, without boxing
+     */
+    private void sortByPriority(int[] rows, int[] buffer, int from, int to) {
+        if (to - from < 24) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i;
+                while (j > from && priorities[rows[j - 1]] < priorities[row]) {
+                    rows[j] = rows[j - 1];
+                    j--;
+                }
+                rows[j] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sortByPriority(rows, buffer, from, mid);
+        sortByPriority(rows, buffer, mid, to);
+        if (priorities[rows[mid - 1]] >= priorities[rows[mid]]) {
+            return; // already in order
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from, right = mid, out = from;
+        while (left < mid && right < to) {
+            rows[out++] = priorities[buffer[right]] > priorities[buffer[left]] ? buffer[right++] : buffer[left++];
+        }
+        while (left < mid) rows[out++] = buffer[left++];
+        while (right < to) rows[out++] = buffer[right++];
+    }
+    
+    /**
+     * Family backed by one table row
+     */
+    private class Row extends Family {
+        private final int row;
+        
+        Row(int row) {
+            this.row = row;
+        }
+        
+        @Override public String getFamilyId() { return FamilyTable.this.getFamilyId(row); }
+        @Override public int getSize() { return sizes[row]; }
+        @Override public double getDistance() { return distances[row]; }
+        @Override public int getUrgencyScore() { return urgencies[row]; }
+        @Override public boolean isActive() { return active[row]; }
+        @Override public double getPriorityScore() { return priorities[row]; }
+        
+        @Override
+        public void setSize(int size) {
+            FamilyTable.this.setSize(row, size);
+            notifyRegistry();
+        }
+        
+        @Override
+        public void setDistance(double distance) {
+            FamilyTable.this.setDistance(row, distance);
+            notifyRegistry();
+        }
+        
+        @Override
+        public void setUrgencyScore(int urgencyScore) {
+            FamilyTable.this.setUrgencyScore(row, urgencyScore);
+            notifyRegistry();
+        }
+        
+        @Override
+        public void setActive(boolean isActive) {
+            FamilyTable.this.setActive(row, isActive);
+            notifyRegistry();
+        }
+    }
+}
\ No newline at end of file
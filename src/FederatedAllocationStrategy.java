@@ -0,0 +1,252 @@
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Strategy that serves each family from the cheapest depot of an
+ * InventoryFederation that still has stock.
+ *
+ * Families are bucketed by their cheapest depot and every depot works
+ * through its bucket, highest priority first, on its own pool task. A depot
+ * is only ever used by one task at a time, so depots never contend with each
+ * other and adding depots adds throughput. Families whose depot ran out are
+ * moved to their next cheapest depot with stock in the following round;
+ * a round's families are served before later rounds start, so a family that
+ * falls back may find stock already taken by lower priority families nearer
+ * to that depot.
+ *
+ * Listeners are called from the calling thread in the original order. If the
+ * allocator's inventory is not a federation, the run is sequential.
+ */
+public class FederatedAllocationStrategy implements AllocationStrategy {
+    private final ForkJoinPool pool;
+    private final Map<String, InventoryFederation.Depot> sources = new HashMap<>(); // last run: family ID -> depot
+    
+    public FederatedAllocationStrategy() {
+        this(ForkJoinPool.commonPool());
+    }
+    
+    public FederatedAllocationStrategy(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    @Override
+    public List<AllocationResult> allocate(SupplyAllocator allocator, List<Family> families) {
+        if (!(allocator.getInventory() instanceof InventoryFederation)) {
+            return new SequentialAllocationStrategy().allocate(allocator, families);
+        }
+        InventoryFederation federation = (InventoryFederation) allocator.getInventory();
+        List<InventoryFederation.Depot> depots = federation.getDepots();
+        int n = families.size();
+        int d = depots.size();
+        AllocationResult[] results = new AllocationResult[n];
+        int[] source = new int[n];
+        double[] triedCost = new double[n];
+        int[] triedDepot = new int[n];
+        Arrays.fill(source, -1);
+        Arrays.fill(triedCost, Double.NEGATIVE_INFINITY);
+        Arrays.fill(triedDepot, -1);
+        
+        int[] pending = new int[n];
+        for (int i = 0; i < n; i++) {
+            pending[i] = i;
+        }
+        int pendingCount = n;
+        
+        for (int round = 0; round < d && pendingCount > 0; round++) {
+            // Bucket by the cheapest depot not tried yet that has stock, keeping priority order
+            int[][] buckets = new int[d][];
+            int[] sizes = new int[d];
+            int placed = 0;
+            for (int p = 0; p < pendingCount; p++) {
+                int i = pending[p];
+                int depot = nextDepot(federation, depots, families.get(i), triedCost[i], triedDepot[i]);
+                if (depot < 0) {
+                    triedDepot[i] = -2; // no depot left with stock: gets an empty result
+                    continue;
+                }
+                triedCost[i] = federation.costOf(families.get(i), depots.get(depot));
+                triedDepot[i] = depot;
+                if (buckets[depot] == null) {
+                    buckets[depot] = new int[Math.max(16, pendingCount / d)];
+                } else if (sizes[depot] == buckets[depot].length) {
+                    buckets[depot] = Arrays.copyOf(buckets[depot], sizes[depot] * 2);
+                }
+                buckets[depot][sizes[depot]++] = i;
+                placed++;
+            }
+            if (placed == 0) {
+                break;
+            }
+            
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int k = 0; k < d; k++) {
+                if (sizes[k] > 0) {
+                    tasks.add(new DepotTask(allocator, depots.get(k).getInventory(), families, buckets[k], sizes[k],
+                            k, results, source));
+                }
+            }
+            runAll(tasks);
+            
+            int left = 0;
+            for (int p = 0; p < pendingCount; p++) {
+                int i = pending[p];
+                if (results[i] == null && triedDepot[i] >= 0) {
+                    pending[left++] = i;
+                }
+            }
+            pendingCount = left;
+        }
+        
+        synchronized (sources) {
+            sources.clear();
+            for (int i = 0; i < n; i++) {
+                Family family = families.get(i);
+                if (results[i] == null) {
+                    results[i] = allocator.newResult(family.getFamilyId());
+                    results[i].calculateAllocationScore(family.getPriorityScore());
+                } else {
+                    sources.put(family.getFamilyId(), depots.get(source[i]));
+                }
+                allocator.notifyFamilyResult(family, results[i]);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+    
+    /**
+     * Results depend on stock across depots, so always recompute everything
+     */
+    @Override
+    public boolean supportsSuffixRecompute() {
+        return false;
+    }
+    
+    /**
+     * Return each result's stock to the depot it came from
+     */
+    @Override
+    public void returnStock(SupplyAllocator allocator, List<AllocationResult> results) {
+        List<AllocationResult> unknown = new ArrayList<>();
+        synchronized (sources) {
+            for (AllocationResult result : results) {
+                InventoryFederation.Depot depot = sources.get(result.getFamilyId());
+                if (depot == null) {
+                    unknown.add(result);
+                    continue;
+                }
+                Inventory inventory = depot.getInventory();
+                LotDraws draws = result.getLotDraws();
+                result.forEachAllocatedSupply((name, quantity) -> {
+                    Supply supply = inventory.getSupply(name);
+                    if (supply != null) {
+                        inventory.restock(supply, quantity, draws);
+                    } else {
+                        allocator.getInventory().restock(allocator.getInventory().getSupply(name), quantity, draws);
+                    }
+                });
+            }
+        }
+        allocator.restockResults(unknown);
+    }
+    
+    /**
+     * Depot a family was served from in the last run, or null
+     */
+    public InventoryFederation.Depot getSourceDepot(String familyId) {
+        synchronized (sources) {
+            return sources.get(familyId);
+        }
+    }
+    
+    /**
+     * Cheapest depot with stock that comes after (cost, index) in cost order
+     * @return Depot index, -1 if none
+     */
+    private static int nextDepot(InventoryFederation federation, List<InventoryFederation.Depot> depots,
+                                 Family family, double afterCost, int afterIndex) {
+        int best = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < depots.size(); k++) {
+            InventoryFederation.Depot depot = depots.get(k);
+            double cost = federation.costOf(family, depot);
+            boolean later = cost > afterCost || (cost == afterCost && k > afterIndex);
+            if (later && (best < 0 || cost < bestCost) && depot.getInventory().hasSupplies()) {
+                best = k;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+    
+    private void runAll(List<Callable<Void>> tasks) {
+        if (tasks.size() == 1) {
+            call(tasks.get(0));
+            return;
+        }
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Allocation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    private static void call(Callable<Void> task) {
+        try {
+            task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Serves one depot's bucket in priority order
+     */
+    private static class DepotTask implements Callable<Void> {
+        private final SupplyAllocator allocator;
+        private final Inventory inventory;
+        private final List<Family> families;
+        private final int[] bucket;
+        private final int size;
+        private final int depot;
+        private final AllocationResult[] results;
+        private final int[] source;
+        
+        DepotTask(SupplyAllocator allocator, Inventory inventory, List<Family> families, int[] bucket, int size,
+                  int depot, AllocationResult[] results, int[] source) {
+            this.allocator = allocator;
+            this.inventory = inventory;
+            this.families = families;
+            this.bucket = bucket;
+            this.size = size;
+            this.depot = depot;
+            this.results = results;
+            this.source = source;
+        }
+        
+        @Override
+        public Void call() {
+            for (int b = 0; b < size; b++) {
+                if (!inventory.hasSupplies()) {
+                    return null; // the rest move on to their next depot
+                }
+                int i = bucket[b];
+                results[i] = allocator.computeAllocation(inventory, families.get(i));
+                source[i] = depot;
+            }
+            return null;
+        }
+    }
+}
\ No newline at end of file
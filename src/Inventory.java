@@ -1,171 +1,560 @@
-import java.util.*;
-
-/**
- * Manages the inventory of relief supplies
- */
-public class Inventory {
-    private Map<String, Supply> supplies;
-    private int maxCapacity; // Maximum weight capacity
-    private int currentWeight;
-    
-    public Inventory(int maxCapacity) {
-        this.maxCapacity = maxCapacity;
-        this.supplies = new HashMap<>();
-        this.currentWeight = 0;
-        initializeDefaultSupplies();
-    }
-    
-    /**
-     * Initialize with default disaster relief supplies
-     */
-    private void initializeDefaultSupplies() {
-        // Supply(name, weight_per_unit, value_per_unit, quantity, unit)
-        addSupply(new Supply("Food Ration", 2, 8, 100, "packs"));
-        addSupply(new Supply("Water Bottle", 1, 10, 150, "bottles"));
-        addSupply(new Supply("Medicine Kit", 1, 15, 50, "kits"));
-        addSupply(new Supply("Blanket", 3, 6, 75, "pieces"));
-        addSupply(new Supply("First Aid", 1, 12, 40, "kits"));
-    }
-    
-    /**
-     * Add a supply to inventory
-     */
-    public boolean addSupply(Supply supply) {
-        if (supply == null) return false;
-        
-        String name = supply.getName();
-        if (supplies.containsKey(name)) {
-            // Update existing supply
-            Supply existing = supplies.get(name);
-            existing.addQuantity(supply.getQuantity());
-        } else {
-            supplies.put(name, supply);
-        }
-        updateCurrentWeight();
-        return true;
-    }
-    
-    /**
-     * Remove supply from inventory
-     */
-    public boolean removeSupply(String supplyName, int quantity) {
-        Supply supply = supplies.get(supplyName);
-        if (supply != null && supply.reduceQuantity(quantity)) {
-            updateCurrentWeight();
-            return true;
-        }
-        return false;
-    }
-    
-    /**
-     * Get supply by name
-     */
-    public Supply getSupply(String name) {
-        return supplies.get(name);
-    }
-    
-    /**
-     * Get all available supplies
-     */
-    public List<Supply> getAvailableSupplies() {
-        List<Supply> available = new ArrayList<>();
-        for (Supply supply : supplies.values()) {
-            if (supply.isAvailable()) {
-                available.add(supply);
-            }
-        }
-        return available;
-    }
-    
-    /**
-     * Get all supplies (including out of stock)
-     */
-    public List<Supply> getAllSupplies() {
-        return new ArrayList<>(supplies.values());
-    }
-    
-    /**
-     * Check if inventory has any supplies
-     */
-    public boolean hasSupplies() {
-        return !getAvailableSupplies().isEmpty();
-    }
-    
-    /**
-     * Update current weight based on all supplies
-     */
-    private void updateCurrentWeight() {
-        currentWeight = 0;
-        for (Supply supply : supplies.values()) {
-            currentWeight += supply.getWeight() * supply.getQuantity();
-        }
-    }
-    
-    /**
-     * Get current total weight
-     */
-    public int getCurrentWeight() {
-        return currentWeight;
-    }
-    
-    /**
-     * Get maximum capacity
-     */
-    public int getMaxCapacity() {
-        return maxCapacity;
-    }
-    
-    /**
-     * Get remaining capacity
-     */
-    public int getRemainingCapacity() {
-        return maxCapacity - currentWeight;
-    }
-    
-    /**
-     * Check if inventory is at capacity
-     */
-    public boolean isAtCapacity() {
-        return currentWeight >= maxCapacity;
-    }
-    
-    /**
-     * Get inventory summary
-     */
-    public String getInventorySummary() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("=== INVENTORY SUMMARY ===\n");
-        sb.append(String.format("Capacity: %d/%d (%.1f%% used)\n", 
-                currentWeight, maxCapacity, (double)currentWeight/maxCapacity*100));
-        sb.append("Supplies:\n");
-        
-        for (Supply supply : supplies.values()) {
-            sb.append(String.format("  %s\n", supply.toString()));
-        }
-        
-        return sb.toString();
-    }
-    
-    /**
-     * Reset inventory to initial state
-     */
-    public void reset() {
-        supplies.clear();
-        currentWeight = 0;
-        initializeDefaultSupplies();
-    }
-    
-    /**
-     * Create a deep copy of the inventory
-     */
-    public Inventory createCopy() {
-        Inventory copy = new Inventory(maxCapacity);
-        copy.supplies.clear(); // Remove default supplies
-        
-        for (Supply supply : supplies.values()) {
-            copy.addSupply(supply.createCopy(supply.getQuantity()));
-        }
-        
-        return copy;
-    }
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Manages the inventory of relief supplies
+ */
+public class Inventory {
+    private Map<String, Supply> supplies;
+    private volatile Supply[] suppliesByType; // index by SupplyTypeRegistry ID
+    private volatile List<Supply> availableByRatio = Collections.emptyList(); // see getAvailableByRatio
+    private int maxCapacity; // Maximum weight capacity
+    private long currentWeight; // kept up to date by supply callbacks
+    private long totalUnits;
+    
+    // Snapshot versioning: supplies changed since lastSnapshot are marked dirty
+    private volatile boolean[] dirtyTypes = new boolean[0];
+    private InventorySnapshot lastSnapshot;
+    private long snapshotVersion;
+    private volatile boolean merging; // see mergeSupplies
+    private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+    
+    public Inventory(int maxCapacity) {
+        this(maxCapacity, new HashMap<>(), true);
+    }
+    
+    /**
+     * Working copy of a snapshot (see InventorySnapshot.toInventory)
+     */
+    Inventory(InventorySnapshot snapshot) {
+        this(snapshot.getMaxCapacity(), new HashMap<>(), false);
+        loadFrom(snapshot);
+    }
+    
+    /**
+     * Constructor for variants that need a different backing map
+     */
+    protected Inventory(int maxCapacity, Map<String, Supply> supplies, boolean withDefaults) {
+        this.maxCapacity = maxCapacity;
+        this.supplies = supplies;
+        this.suppliesByType = new Supply[SupplyTypeRegistry.size()];
+        if (withDefaults) {
+            initializeDefaultSupplies();
+        }
+    }
+    
+    /**
+     * Initialize with default disaster relief supplies
+     */
+    protected void initializeDefaultSupplies() {
+        // Supply(name, weight_per_unit, value_per_unit, quantity, unit)
+        addSupply(new Supply("Food Ration", 2, 8, 100, "packs"));
+        addSupply(new Supply("Water Bottle", 1, 10, 150, "bottles"));
+        addSupply(new Supply("Medicine Kit", 1, 15, 50, "kits"));
+        addSupply(new Supply("Blanket", 3, 6, 75, "pieces"));
+        addSupply(new Supply("First Aid", 1, 12, 40, "kits"));
+    }
+    
+    /**
+     * Add a supply to inventory
+     */
+    public boolean addSupply(Supply supply) {
+        if (supply == null) return false;
+        
+        storeSupply(supply);
+        return true;
+    }
+    
+    /**
+     * Add a batch of supplies: units of supplies already stored are added to
+     * them and new supplies are defined. Give each supply once (see
+     * SupplyManifestImporter, which sums line items first); the in-stock
+     * ratio view is then rebuilt once for the whole batch instead of once per
+     * supply that is new or back in stock.
+     * @return Number of supplies that were new to the inventory
+     */
+    public int mergeSupplies(Collection<Supply> batch) {
+        int defined = 0;
+        merging = true;
+        try {
+            for (Supply supply : batch) {
+                if (supply != null && storeSupply(supply)) {
+                    defined++;
+                }
+            }
+        } finally {
+            merging = false;
+            rebuildRatioView();
+        }
+        return defined;
+    }
+    
+    /**
+     * Store a supply, or add its units to the stored supply of that name
+     * @return true if the supply was new
+     */
+    private boolean storeSupply(Supply supply) {
+        Supply existing = supplies.get(supply.getName());
+        if (existing == null) {
+            Supply adopted = null;
+            synchronized (this) {
+                existing = supplies.get(supply.getName());
+                if (existing == null) {
+                    // Attached and counted before other threads can find it by type ID or name
+                    adopted = adopt(supply);
+                    adopted.setTypeId(SupplyTypeRegistry.register(adopted.getName()));
+                    adopted.attachTo(this);
+                    addToTotals((long) adopted.getWeight() * adopted.getQuantity(), adopted.getQuantity());
+                    indexByType(adopted);
+                    supplies.put(adopted.getName(), adopted);
+                }
+            }
+            if (adopted != null) {
+                refreshRatioView();
+                for (InventoryListener listener : listeners) {
+                    listener.onSupplyDefined(adopted);
+                }
+                return true;
+            }
+        }
+        // Update existing supply
+        existing.addQuantity(supply.getQuantity());
+        return false;
+    }
+    
+    /**
+     * Record a newly stored supply in the type ID index
+     */
+    private synchronized void indexByType(Supply supply) {
+        Supply[] index = suppliesByType;
+        if (supply.getTypeId() >= index.length) {
+            index = Arrays.copyOf(index, Math.max(SupplyTypeRegistry.size(), index.length * 2));
+        }
+        index[supply.getTypeId()] = supply;
+        suppliesByType = index;
+        if (dirtyTypes.length < index.length) {
+            dirtyTypes = Arrays.copyOf(dirtyTypes, index.length);
+        }
+        markDirty(supply);
+    }
+    
+    /**
+     * Fill an empty inventory from a snapshot in one pass
+     */
+    protected final synchronized void loadFrom(InventorySnapshot snapshot) {
+        Supply[] index = new Supply[Math.max(snapshot.typeSlots(), SupplyTypeRegistry.size())];
+        List<Supply> view = new ArrayList<>();
+        for (int typeId : snapshot.ratioOrder()) {
+            InventorySnapshot.Entry entry = snapshot.entry(typeId);
+            Supply supply = adopt(entry.toSupply());
+            supply.setTypeId(typeId);
+            supply.attachTo(this);
+            supplies.put(entry.name, supply);
+            index[typeId] = supply;
+            if (entry.quantity > 0) {
+                view.add(supply);
+            }
+        }
+        suppliesByType = index;
+        dirtyTypes = new boolean[index.length];
+        availableByRatio = Collections.unmodifiableList(view);
+        addToTotals(snapshot.getCurrentWeight(), snapshot.getTotalUnits());
+        lastSnapshot = snapshot; // identical so far, so later snapshots can share its entries
+        snapshotVersion = snapshot.getVersion();
+    }
+    
+    /**
+     * Take an immutable snapshot. Entries of supplies that have not changed
+     * since the previous snapshot are shared with it; if nothing changed the
+     * previous snapshot itself is returned. With concurrent writers each
+     * supply is read atomically but the snapshot as a whole is not.
+     */
+    public synchronized InventorySnapshot snapshot() {
+        InventorySnapshot previous = lastSnapshot;
+        Supply[] index = suppliesByType;
+        boolean[] dirty = dirtyTypes;
+        boolean changed = previous == null || previous.typeSlots() != index.length;
+        boolean reorder = changed;
+        
+        InventorySnapshot.Entry[] entries = new InventorySnapshot.Entry[index.length];
+        for (int typeId = 0; typeId < index.length; typeId++) {
+            Supply supply = index[typeId];
+            if (supply == null) {
+                continue;
+            }
+            InventorySnapshot.Entry shared = previous != null ? previous.entry(typeId) : null;
+            if (shared != null && !dirty[typeId]) {
+                entries[typeId] = shared;
+                continue;
+            }
+            dirty[typeId] = false; // cleared before reading, so a concurrent change re-marks it
+            entries[typeId] = new InventorySnapshot.Entry(supply, supply.getQuantity());
+            changed = true;
+            reorder |= shared == null || shared.ratio() != entries[typeId].ratio();
+        }
+        
+        if (!changed) {
+            return previous;
+        }
+        int[] order = reorder ? ratioOrder(entries) : previous.ratioOrder();
+        lastSnapshot = new InventorySnapshot(maxCapacity, entries, order, ++snapshotVersion);
+        return lastSnapshot;
+    }
+    
+    private static int[] ratioOrder(InventorySnapshot.Entry[] entries) {
+        List<InventorySnapshot.Entry> present = new ArrayList<>();
+        for (InventorySnapshot.Entry entry : entries) {
+            if (entry != null) {
+                present.add(entry);
+            }
+        }
+        present.sort(Comparator.comparingDouble(InventorySnapshot.Entry::ratio).reversed()
+                .thenComparingInt(entry -> entry.typeId));
+        int[] order = new int[present.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = present.get(i).typeId;
+        }
+        return order;
+    }
+    
+    private void markDirty(Supply supply) {
+        boolean[] dirty = dirtyTypes;
+        int typeId = supply.getTypeId();
+        if (typeId >= 0 && typeId < dirty.length) {
+            dirty[typeId] = true;
+        }
+    }
+    
+    /**
+     * Recompute the in-stock supplies in value/weight order.
+     * Only runs when a supply is added, runs out, comes back or is repriced;
+     * the result is an immutable list that readers use without copying.
+     */
+    private synchronized void rebuildRatioView() {
+        List<Supply> view = new ArrayList<>();
+        for (Supply supply : supplies.values()) {
+            if (supply.isAvailable()) {
+                view.add(supply);
+            }
+        }
+        view.sort(Comparator.comparingDouble(Supply::getValueWeightRatio).reversed()
+                .thenComparingInt(Supply::getTypeId));
+        availableByRatio = Collections.unmodifiableList(view);
+    }
+    
+    /**
+     * Rebuild the ratio view now, or leave it to the end of a running merge
+     */
+    private void refreshRatioView() {
+        if (!merging) {
+            rebuildRatioView();
+        }
+    }
+    
+    /**
+     * Called by an owned supply after every quantity change
+     */
+    void onSupplyStockChanged(Supply supply, int before, int after) {
+        addToTotals((long) (after - before) * supply.getWeight(), after - before);
+        markDirty(supply);
+        if ((before > 0) != (after > 0)) {
+            refreshRatioView();
+        }
+        if (!listeners.isEmpty()) {
+            for (InventoryListener listener : listeners) {
+                listener.onStockChanged(supply, before, after);
+            }
+        }
+    }
+    
+    /**
+     * Called by an owned supply whose value or weight changed
+     */
+    void onSupplyRepriced(Supply supply, int previousWeight) {
+        addToTotals((long) (supply.getWeight() - previousWeight) * supply.getQuantity(), 0);
+        markDirty(supply);
+        rebuildRatioView();
+        for (InventoryListener listener : listeners) {
+            listener.onSupplyDefined(supply);
+        }
+    }
+    
+    /**
+     * Register a listener for supply changes
+     */
+    public void addInventoryListener(InventoryListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+    
+    public boolean removeInventoryListener(InventoryListener listener) {
+        return listeners.remove(listener);
+    }
+    
+    /**
+     * Apply a change to the weight and unit totals; variants override this
+     * together with the two readers below
+     */
+    protected void addToTotals(long weightDelta, long unitDelta) {
+        currentWeight += weightDelta;
+        totalUnits += unitDelta;
+    }
+    
+    protected long weightTotal() {
+        return currentWeight;
+    }
+    
+    protected long unitTotal() {
+        return totalUnits;
+    }
+    
+    protected void resetTotals() {
+        currentWeight = 0;
+        totalUnits = 0;
+    }
+    
+    /**
+     * Convert a supply before it is stored; variants override this
+     */
+    protected Supply adopt(Supply supply) {
+        return supply;
+    }
+    
+    /**
+     * Remove supply from inventory
+     */
+    public boolean removeSupply(String supplyName, int quantity) {
+        Supply supply = supplies.get(supplyName);
+        return supply != null && supply.reduceQuantity(quantity);
+    }
+    
+    /**
+     * Take up to the requested units of an owned supply
+     * @return Units actually taken
+     */
+    public int claim(Supply supply, int quantity) {
+        return claim(supply, quantity, null);
+    }
+    
+    /**
+     * Take up to the requested units of an owned supply, noting the dated
+     * lots used in draws (may be null) so restock can refill them
+     * @return Units actually taken
+     */
+    public int claim(Supply supply, int quantity, LotDraws draws) {
+        return owns(supply) ? supply.claimUpTo(quantity, draws) : 0;
+    }
+    
+    /**
+     * Take exactly the requested units of an owned supply, or nothing
+     * @return false if the supply is not owned or has too few units
+     */
+    public boolean claimExactly(Supply supply, int quantity) {
+        return claimExactly(supply, quantity, null);
+    }
+    
+    /**
+     * Take exactly the requested units of an owned supply, or nothing,
+     * noting the dated lots used in draws (may be null)
+     */
+    public boolean claimExactly(Supply supply, int quantity, LotDraws draws) {
+        return quantity > 0 && owns(supply) && supply.reduceQuantity(quantity, draws);
+    }
+    
+    /**
+     * Put units of an owned supply back into stock as undated units. New
+     * donations go through addSupply.
+     */
+    public void restock(Supply supply, int quantity) {
+        restock(supply, quantity, null);
+    }
+    
+    /**
+     * Put units of an owned supply back into stock, into the lots the claim
+     * that recorded draws took them from (see Supply.returnUnits)
+     */
+    public void restock(Supply supply, int quantity, LotDraws draws) {
+        if (owns(supply)) {
+            supply.returnUnits(quantity, draws);
+        }
+    }
+    
+    /**
+     * Receive a dated lot of a supply already in the inventory
+     * @return false if the supply is unknown
+     */
+    public boolean receiveLot(String supplyName, String lotId, int quantity, LocalDate expiresOn) {
+        Supply supply = supplies.get(supplyName);
+        if (supply == null || quantity <= 0 || expiresOn == null) {
+            return false;
+        }
+        supply.receiveLot(lotId, quantity, expiresOn);
+        return true;
+    }
+    
+    /**
+     * Remove lots that expired before the given day. Supplies whose oldest
+     * lot is still good are skipped without looking at their other lots.
+     * @return Units removed per supply name, only supplies that lost stock
+     */
+    public Map<String, Integer> expireLots(LocalDate today) {
+        Map<String, Integer> expired = new LinkedHashMap<>();
+        for (Supply supply : getAllSupplies()) {
+            LocalDate next = supply.getNextExpiry();
+            if (next != null && next.isBefore(today)) {
+                int units = supply.expireLots(today);
+                if (units > 0) {
+                    expired.put(supply.getName(), units);
+                }
+            }
+        }
+        return expired;
+    }
+    
+    private boolean owns(Supply supply) {
+        return supply != null && getSupply(supply.getTypeId()) == supply;
+    }
+    
+    /**
+     * Get supply by name
+     */
+    public Supply getSupply(String name) {
+        return supplies.get(name);
+    }
+    
+    /**
+     * Get supply by type ID (see SupplyTypeRegistry)
+     */
+    public Supply getSupply(int typeId) {
+        Supply[] index = suppliesByType;
+        if (typeId < 0 || typeId >= index.length) {
+            return null;
+        }
+        Supply supply = index[typeId];
+        return supply != null ? supply : supplies.get(SupplyTypeRegistry.nameOf(typeId));
+    }
+    
+    /**
+     * Get all available supplies
+     */
+    public List<Supply> getAvailableSupplies() {
+        List<Supply> available = new ArrayList<>();
+        for (Supply supply : supplies.values()) {
+            if (supply.isAvailable()) {
+                available.add(supply);
+            }
+        }
+        return available;
+    }
+    
+    /**
+     * In-stock supplies, best value/weight ratio first.
+     * The list is read-only and is not copied per call. A supply may run out
+     * while a caller holds the list, so callers still check quantities.
+     */
+    public List<Supply> getAvailableByRatio() {
+        return availableByRatio;
+    }
+    
+    /**
+     * Get all supplies (including out of stock)
+     */
+    public List<Supply> getAllSupplies() {
+        return new ArrayList<>(supplies.values());
+    }
+    
+    /**
+     * Check if inventory has any supplies
+     */
+    public boolean hasSupplies() {
+        return !availableByRatio.isEmpty();
+    }
+    
+    /**
+     * Get current total weight
+     */
+    public int getCurrentWeight() {
+        return (int) weightTotal();
+    }
+    
+    /**
+     * Get the number of units in stock across all supplies
+     */
+    public long getTotalUnits() {
+        return unitTotal();
+    }
+    
+    /**
+     * Get maximum capacity
+     */
+    public int getMaxCapacity() {
+        return maxCapacity;
+    }
+    
+    /**
+     * Get remaining capacity
+     */
+    public int getRemainingCapacity() {
+        return maxCapacity - getCurrentWeight();
+    }
+    
+    /**
+     * Check if inventory is at capacity
+     */
+    public boolean isAtCapacity() {
+        return getCurrentWeight() >= maxCapacity;
+    }
+    
+    /**
+     * Get inventory summary
+     */
+    public String getInventorySummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== INVENTORY SUMMARY ===\n");
+        sb.append(String.format("Capacity: %d/%d (%.1f%% used)\n", 
+                getCurrentWeight(), maxCapacity, (double)getCurrentWeight()/maxCapacity*100));
+        sb.append("Supplies:\n");
+        
+        for (Supply supply : supplies.values()) {
+            sb.append(String.format("  %s\n", supply.toString()));
+        }
+        
+        return sb.toString();
+    }
+    
+    /**
+     * Reset inventory to initial state
+     */
+    public void reset() {
+        detachAll();
+        suppliesByType = new Supply[SupplyTypeRegistry.size()];
+        initializeDefaultSupplies();
+    }
+    
+    /**
+     * Drop all supplies and stop listening to them
+     */
+    private void detachAll() {
+        for (Supply supply : supplies.values()) {
+            supply.detachFrom(this);
+        }
+        supplies.clear();
+        availableByRatio = Collections.emptyList();
+        resetTotals();
+        synchronized (this) {
+            lastSnapshot = null;
+        }
+        for (InventoryListener listener : listeners) {
+            listener.onInventoryCleared();
+        }
+    }
+    
+    /**
+     * Create a deep copy of the inventory, by way of a snapshot
+     */
+    public Inventory createCopy() {
+        return snapshot().toInventory();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,375 @@
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.ToDoubleBiFunction;
+
+/**
+ * Inventory made of several depot inventories.
+ *
+ * The federation itself holds one supply per type whose quantity is the
+ * total across all depots, recounted on each depot stock event under the
+ * lock that also adds and removes depots, so it can be used anywhere an
+ * Inventory is expected (reports, status, the allocator's hasSupplies
+ * check). Claims and restocks made through the federation are routed to
+ * the depots, nearest to the hub first; change stock through the federation
+ * or the depots, never on the total supplies directly.
+ *
+ * FederatedAllocationStrategy uses the depots directly and sources each
+ * family from the cheapest depot that has stock. By default the cost of
+ * serving a family from a depot is the difference between the family's
+ * distance and the depot's distance from the hub; setCostFunction() accepts
+ * real per-depot distances.
+ */
+public class InventoryFederation extends ConcurrentInventory {
+    private volatile List<Depot> depots = Collections.emptyList(); // nearest to the hub first; replaced, never changed
+    private volatile ToDoubleBiFunction<Family, Depot> costFunction =
+            (family, depot) -> Math.abs(family.getDistance() - depot.getDistance());
+    
+    public InventoryFederation() {
+        super(0, false);
+    }
+    
+    /**
+     * Add a depot and include its stock in the totals
+     * @param distance Distance of the depot from the hub, in the units of Family.getDistance
+     */
+    public Depot addDepot(String name, Inventory inventory, double distance) {
+        Depot depot = new Depot(name, inventory, distance);
+        synchronized (this) {
+            List<Depot> ordered = new ArrayList<>(depots);
+            ordered.add(depot);
+            ordered.sort(Comparator.comparingDouble(Depot::getDistance));
+            depots = Collections.unmodifiableList(ordered);
+            inventory.addInventoryListener(depot);
+            for (Supply supply : inventory.getAllSupplies()) {
+                resync(supply);
+            }
+        }
+        return depot;
+    }
+    
+    /**
+     * Remove a depot and its stock from the federation
+     */
+    public synchronized boolean removeDepot(String name) {
+        Depot depot = getDepot(name);
+        if (depot == null) {
+            return false;
+        }
+        List<Depot> remaining = new ArrayList<>(depots);
+        remaining.remove(depot);
+        depots = Collections.unmodifiableList(remaining);
+        depot.inventory.removeInventoryListener(depot);
+        for (Supply supply : depot.inventory.getAllSupplies()) {
+            resync(supply);
+        }
+        return true;
+    }
+    
+    public Depot getDepot(String name) {
+        for (Depot depot : depots) {
+            if (depot.name.equals(name)) {
+                return depot;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Depots, nearest to the hub first (read-only)
+     */
+    public List<Depot> getDepots() {
+        return depots;
+    }
+    
+    /**
+     * Cost of serving a family from a depot; lower is better
+     */
+    public double costOf(Family family, Depot depot) {
+        return costFunction.applyAsDouble(family, depot);
+    }
+    
+    public void setCostFunction(ToDoubleBiFunction<Family, Depot> costFunction) {
+        if (costFunction != null) {
+            this.costFunction = costFunction;
+        }
+    }
+    
+    /**
+     * New supplies go to the nearest depot
+     */
+    @Override
+    public boolean addSupply(Supply supply) {
+        List<Depot> order = depots;
+        if (supply == null || order.isEmpty()) {
+            return false;
+        }
+        return order.get(0).inventory.addSupply(supply);
+    }
+    
+    /**
+     * Each supply goes to the nearest depot that carries it, new supplies to
+     * the nearest depot; every depot merges its share as one batch
+     */
+    @Override
+    public int mergeSupplies(Collection<Supply> batch) {
+        List<Depot> order = depots;
+        if (order.isEmpty()) {
+            return 0;
+        }
+        Map<Depot, List<Supply>> shares = new LinkedHashMap<>();
+        for (Supply supply : batch) {
+            if (supply == null) {
+                continue;
+            }
+            Depot target = order.get(0);
+            for (Depot depot : order) {
+                if (depot.inventory.getSupply(supply.getName()) != null) {
+                    target = depot;
+                    break;
+                }
+            }
+            shares.computeIfAbsent(target, depot -> new ArrayList<>()).add(supply);
+        }
+        int defined = 0;
+        for (Map.Entry<Depot, List<Supply>> share : shares.entrySet()) {
+            defined += share.getKey().inventory.mergeSupplies(share.getValue());
+        }
+        return defined;
+    }
+    
+    @Override
+    public boolean removeSupply(String supplyName, int quantity) {
+        return claimExactly(getSupply(supplyName), quantity);
+    }
+    
+    /**
+     * Take units from the depots, nearest first
+     */
+    @Override
+    public int claim(Supply supply, int quantity, LotDraws draws) {
+        if (!isTotal(supply)) {
+            return 0;
+        }
+        int taken = 0;
+        for (Depot depot : depots) {
+            if (taken >= quantity) {
+                break;
+            }
+            Supply stock = depot.inventory.getSupply(supply.getTypeId());
+            if (stock != null) {
+                taken += depot.inventory.claim(stock, quantity - taken, draws);
+            }
+        }
+        return taken;
+    }
+    
+    @Override
+    public boolean claimExactly(Supply supply, int quantity, LotDraws draws) {
+        if (quantity <= 0 || !isTotal(supply)) {
+            return false;
+        }
+        LotDraws used = draws != null ? draws : new LotDraws(); // to refill the right lots on failure
+        List<Depot> order = depots;
+        int[] taken = new int[order.size()];
+        int total = 0;
+        for (int i = 0; i < order.size() && total < quantity; i++) {
+            Supply stock = order.get(i).inventory.getSupply(supply.getTypeId());
+            if (stock != null) {
+                taken[i] = order.get(i).inventory.claim(stock, quantity - total, used);
+                total += taken[i];
+            }
+        }
+        if (total == quantity) {
+            return true;
+        }
+        for (int i = 0; i < order.size(); i++) {
+            if (taken[i] > 0) {
+                Inventory inventory = order.get(i).inventory;
+                inventory.restock(inventory.getSupply(supply.getTypeId()), taken[i], used);
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Put units drawn from dated lots back into the depots they came from,
+     * the rest into the nearest depot that carries the supply
+     */
+    @Override
+    public void restock(Supply supply, int quantity, LotDraws draws) {
+        if (!isTotal(supply) || quantity <= 0) {
+            return;
+        }
+        if (draws != null && !draws.isEmpty()) {
+            for (Depot depot : depots) {
+                Supply stock = depot.inventory.getSupply(supply.getTypeId());
+                int drawn = stock != null ? Math.min(quantity, draws.unitsFrom(stock)) : 0;
+                if (drawn > 0) {
+                    depot.inventory.restock(stock, drawn, draws);
+                    quantity -= drawn;
+                }
+            }
+            if (quantity == 0) {
+                return;
+            }
+        }
+        for (Depot depot : depots) {
+            Supply stock = depot.inventory.getSupply(supply.getTypeId());
+            if (stock != null) {
+                depot.inventory.restock(stock, quantity);
+                return;
+            }
+        }
+        addSupply(supply.createCopy(quantity));
+    }
+    
+    /**
+     * Dated lots go to the nearest depot that carries the supply
+     */
+    @Override
+    public boolean receiveLot(String supplyName, String lotId, int quantity, LocalDate expiresOn) {
+        for (Depot depot : depots) {
+            if (depot.inventory.receiveLot(supplyName, lotId, quantity, expiresOn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Sweep every depot; units are summed per supply name
+     */
+    @Override
+    public Map<String, Integer> expireLots(LocalDate today) {
+        Map<String, Integer> expired = new LinkedHashMap<>();
+        for (Depot depot : depots) {
+            depot.inventory.expireLots(today).forEach((name, units) -> expired.merge(name, units, Integer::sum));
+        }
+        return expired;
+    }
+    
+    /**
+     * Reset every depot to its initial state
+     */
+    @Override
+    public void reset() {
+        for (Depot depot : depots) {
+            depot.inventory.reset();
+        }
+    }
+    
+    /**
+     * Combined capacity of the depots
+     */
+    @Override
+    public int getMaxCapacity() {
+        long total = 0;
+        for (Depot depot : depots) {
+            total += depot.inventory.getMaxCapacity();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, total);
+    }
+    
+    @Override
+    public int getRemainingCapacity() {
+        return getMaxCapacity() - getCurrentWeight();
+    }
+    
+    @Override
+    public boolean isAtCapacity() {
+        return getCurrentWeight() >= getMaxCapacity();
+    }
+    
+    @Override
+    public String getInventorySummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== INVENTORY SUMMARY ===\n");
+        sb.append(String.format("Depots: %d, Capacity: %d/%d\n", depots.size(), getCurrentWeight(), getMaxCapacity()));
+        sb.append("Supplies (all depots):\n");
+        for (Supply supply : getAllSupplies()) {
+            sb.append(String.format("  %s\n", supply.toString()));
+        }
+        for (Depot depot : depots) {
+            sb.append(String.format("Depot %s (distance %.1f): %d/%d\n", depot.name, depot.distance,
+                    depot.inventory.getCurrentWeight(), depot.inventory.getMaxCapacity()));
+        }
+        return sb.toString();
+    }
+    
+    private boolean isTotal(Supply supply) {
+        return supply != null && getSupply(supply.getTypeId()) == supply;
+    }
+    
+    /**
+     * Recount one supply type over all depots. Every depot event recounts
+     * rather than applying its delta: an event that waited for this lock
+     * while a depot was added or removed would otherwise count its change
+     * twice, or after its depot left.
+     */
+    private synchronized void resync(Supply depotSupply) {
+        int typeId = depotSupply.getTypeId();
+        long quantity = 0;
+        for (Depot depot : depots) {
+            Supply stock = depot.inventory.getSupply(typeId);
+            if (stock != null) {
+                quantity += stock.getQuantity();
+            }
+        }
+        int count = (int) Math.min(Integer.MAX_VALUE, quantity);
+        Supply total = getSupply(typeId);
+        if (total == null) {
+            super.addSupply(new Supply(depotSupply.getName(), depotSupply.getWeight(), depotSupply.getValue(),
+                    count, depotSupply.getUnit()));
+        } else {
+            total.setQuantity(count);
+        }
+    }
+    
+    private synchronized void resyncAll() {
+        for (Supply total : getAllSupplies()) {
+            resync(total);
+        }
+    }
+    
+    /**
+     * One member inventory, located at a distance from the hub
+     */
+    public final class Depot implements InventoryListener {
+        private final String name;
+        private final Inventory inventory;
+        private final double distance;
+        
+        private Depot(String name, Inventory inventory, double distance) {
+            this.name = name;
+            this.inventory = inventory;
+            this.distance = distance;
+        }
+        
+        // Getters
+        public String getName() { return name; }
+        public Inventory getInventory() { return inventory; }
+        public double getDistance() { return distance; }
+        
+        @Override
+        public void onSupplyDefined(Supply supply) {
+            resync(supply);
+        }
+        
+        @Override
+        public void onStockChanged(Supply supply, int before, int after) {
+            if (before != after) {
+                resync(supply);
+            }
+        }
+        
+        @Override
+        public void onInventoryCleared() {
+            resyncAll();
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Depot %s (distance %.1f)", name, distance);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+/**
+ * Receives changes to an inventory's supplies.
+ * Calls arrive on the thread that made the change, which may be a worker
+ * thread for a ConcurrentInventory.
+ */
+public interface InventoryListener {
+    
+    /**
+     * A new supply type was added, or an existing one was repriced
+     */
+    default void onSupplyDefined(Supply supply) {}
+    
+    /**
+     * The quantity of a supply changed
+     */
+    default void onStockChanged(Supply supply, int before, int after) {}
+    
+    /**
+     * All supplies were dropped (the defaults may be added again right after)
+     */
+    default void onInventoryCleared() {}
+}
\ No newline at end of file
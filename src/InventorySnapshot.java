@@ -0,0 +1,126 @@
+import java.util.*;
+
+/**
+ * Immutable picture of an inventory at one moment, used as the baseline for
+ * what-if allocations.
+ *
+ * Snapshots are persistent: Inventory.snapshot() only creates new entries
+ * for supplies that changed since the previous snapshot and shares every
+ * other entry with it, so taking a snapshot of a mostly idle inventory costs
+ * a few object allocations. toInventory() starts a working copy from the
+ * snapshot without the default supplies, re-sorting or per-supply index
+ * rebuilds that building an inventory by hand involves.
+ */
+public final class InventorySnapshot {
+    private final int maxCapacity;
+    private final Entry[] byType; // indexed by SupplyTypeRegistry ID, null where absent
+    private final int[] ratioOrder; // type IDs, best value/weight ratio first
+    private final long weight;
+    private final long units;
+    private final long version;
+    
+    InventorySnapshot(int maxCapacity, Entry[] byType, int[] ratioOrder, long version) {
+        this.maxCapacity = maxCapacity;
+        this.byType = byType;
+        this.ratioOrder = ratioOrder;
+        this.version = version;
+        long totalWeight = 0;
+        long totalUnits = 0;
+        for (Entry entry : byType) {
+            if (entry != null) {
+                totalWeight += (long) entry.weight * entry.quantity;
+                totalUnits += entry.quantity;
+            }
+        }
+        this.weight = totalWeight;
+        this.units = totalUnits;
+    }
+    
+    /**
+     * Start a new, independent inventory from this snapshot
+     */
+    public Inventory toInventory() {
+        return new Inventory(this);
+    }
+    
+    /**
+     * Start a new, independent inventory for concurrent claims from this snapshot
+     */
+    public ConcurrentInventory toConcurrentInventory() {
+        return new ConcurrentInventory(this);
+    }
+    
+    // Getters
+    public int getMaxCapacity() { return maxCapacity; }
+    public long getCurrentWeight() { return weight; }
+    public long getTotalUnits() { return units; }
+    public long getVersion() { return version; }
+    
+    /**
+     * Units of a supply at snapshot time, 0 if it was not stocked
+     */
+    public int getQuantity(String supplyName) {
+        return getQuantity(SupplyTypeRegistry.idOf(supplyName));
+    }
+    
+    public int getQuantity(int typeId) {
+        Entry entry = entry(typeId);
+        return entry != null ? entry.quantity : 0;
+    }
+    
+    /**
+     * Names of the stocked supplies, best value/weight ratio first
+     */
+    public List<String> getSupplyNames() {
+        List<String> names = new ArrayList<>(ratioOrder.length);
+        for (int typeId : ratioOrder) {
+            names.add(byType[typeId].name);
+        }
+        return names;
+    }
+    
+    public int getSupplyCount() {
+        return ratioOrder.length;
+    }
+    
+    Entry entry(int typeId) {
+        return typeId >= 0 && typeId < byType.length ? byType[typeId] : null;
+    }
+    
+    int typeSlots() {
+        return byType.length;
+    }
+    
+    int[] ratioOrder() {
+        return ratioOrder;
+    }
+    
+    /**
+     * Frozen state of one supply
+     */
+    static final class Entry {
+        final String name;
+        final int weight;
+        final int value;
+        final int quantity;
+        final String unit;
+        final int typeId;
+        
+        Entry(Supply supply, int quantity) {
+            this.name = supply.getName();
+            this.weight = supply.getWeight();
+            this.value = supply.getValue();
+            this.quantity = quantity;
+            this.unit = supply.getUnit();
+            this.typeId = supply.getTypeId();
+        }
+        
+        double ratio() {
+            return weight > 0 ? (double) value / weight : 0;
+        }
+        
+        Supply toSupply() {
+            return new Supply(name, weight, value, quantity, unit);
+        }
+    }
+}
\ No newline at end of file
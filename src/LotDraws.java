@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * Units one claim took from dated lots, kept by whoever made the claim (an
+ * allocation result, a reservation) so that handing the units back refills
+ * exactly those lots. Supplies keep no record of their own, so the records
+ * go away with the claim. Not thread safe: one claimant fills and returns it.
+ */
+public final class LotDraws {
+    private Supply[] supplies; // null until the first draw
+    private SupplyLot[] lots;
+    private int[] units;
+    private int size;
+    
+    /**
+     * Note units taken from a lot (the supply's lock is held)
+     */
+    void add(Supply supply, SupplyLot lot, int taken) {
+        if (taken <= 0) {
+            return;
+        }
+        if (size > 0 && lots[size - 1] == lot) {
+            units[size - 1] += taken;
+            return;
+        }
+        if (lots == null) {
+            supplies = new Supply[4];
+            lots = new SupplyLot[4];
+            units = new int[4];
+        } else if (size == lots.length) {
+            supplies = Arrays.copyOf(supplies, size * 2);
+            lots = Arrays.copyOf(lots, size * 2);
+            units = Arrays.copyOf(units, size * 2);
+        }
+        supplies[size] = supply;
+        lots[size] = lot;
+        units[size] = taken;
+        size++;
+    }
+    
+    /**
+     * Take back up to the given units drawn from a supply, most recent first,
+     * and drop the records they cover (the supply's lock is held)
+     * @param refill Called with each lot and the units it gets back
+     * @return Units matched to lots
+     */
+    int takeBack(Supply supply, int amount, Refill refill) {
+        int matched = 0;
+        for (int i = size - 1; i >= 0 && matched < amount; i--) {
+            if (supplies[i] != supply) {
+                continue;
+            }
+            int back = Math.min(amount - matched, units[i]);
+            refill.giveBack(lots[i], back);
+            units[i] -= back;
+            matched += back;
+        }
+        compact();
+        return matched;
+    }
+    
+    /**
+     * Units still recorded against a supply
+     */
+    public int unitsFrom(Supply supply) {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            if (supplies[i] == supply) {
+                total += units[i];
+            }
+        }
+        return total;
+    }
+    
+    /**
+     * Number of (lot, units) records held
+     */
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    private void compact() {
+        if (size == 0) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (units[i] > 0) {
+                supplies[kept] = supplies[i];
+                lots[kept] = lots[i];
+                units[kept] = units[i];
+                kept++;
+            }
+        }
+        Arrays.fill(supplies, kept, size, null);
+        Arrays.fill(lots, kept, size, null);
+        size = kept;
+    }
+    
+    /**
+     * Receiver of units handed back to a lot
+     */
+    interface Refill {
+        void giveBack(SupplyLot lot, int units);
+    }
+}
\ No newline at end of file
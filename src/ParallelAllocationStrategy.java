@@ -0,0 +1,101 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Strategy that solves families of the same priority band concurrently.
+ *
+ * Families are split into bands of equal width on the priority score. Bands
+ * are processed strictly one after another in the order given, so a band
+ * never competes for stock with a band served before it.
+ * Within a band every family is planned and claimed on a ForkJoinPool; stock
+ * is taken through Inventory.claim, which is a CAS loop on a
+ * ConcurrentInventory (see ConcurrentInventory.copyOf). With a plain
+ * Inventory the bands are still honoured but solved on the calling thread.
+ * Listeners are called from the calling thread, band by band, in the
+ * original order.
+ */
+public class ParallelAllocationStrategy implements AllocationStrategy {
+    private static final int SEQUENTIAL_THRESHOLD = 64; // families per leaf task
+    
+    private final ForkJoinPool pool;
+    private final double bandWidth;
+    
+    public ParallelAllocationStrategy() {
+        this(ForkJoinPool.commonPool(), 1.0);
+    }
+    
+    public ParallelAllocationStrategy(ForkJoinPool pool, double bandWidth) {
+        this.pool = pool;
+        this.bandWidth = bandWidth > 0 ? bandWidth : 1.0;
+    }
+    
+    @Override
+    public List<AllocationResult> allocate(SupplyAllocator allocator, List<Family> families) {
+        int n = families.size();
+        AllocationResult[] results = new AllocationResult[n];
+        boolean concurrent = allocator.getInventory() instanceof ConcurrentInventory;
+        
+        int start = 0;
+        while (start < n) {
+            long band = bandOf(families.get(start));
+            int end = start + 1;
+            while (end < n && bandOf(families.get(end)) == band) {
+                end++;
+            }
+            
+            if (!concurrent || end - start <= SEQUENTIAL_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    results[i] = allocator.computeAllocation(families.get(i));
+                }
+            } else {
+                pool.invoke(new BandTask(allocator, families, results, start, end));
+            }
+            
+            for (int i = start; i < end; i++) {
+                allocator.notifyFamilyResult(families.get(i), results[i]);
+            }
+            start = end;
+        }
+        
+        return new ArrayList<>(Arrays.asList(results));
+    }
+    
+    private long bandOf(Family family) {
+        return (long) Math.floor(family.getPriorityScore() / bandWidth);
+    }
+    
+    /**
+     * Splits a band range until it is small enough to allocate directly
+     */
+    private static class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final SupplyAllocator allocator;
+        private final List<Family> families;
+        private final AllocationResult[] results;
+        private final int from;
+        private final int to;
+        
+        BandTask(SupplyAllocator allocator, List<Family> families, AllocationResult[] results, int from, int to) {
+            this.allocator = allocator;
+            this.families = families;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = allocator.computeAllocation(families.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BandTask(allocator, families, results, from, mid),
+                    new BandTask(allocator, families, results, mid, to));
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,203 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Byte channel that gzips what is written to it on a worker pool.
+ *
+ * Input is cut into fixed-size blocks and every block is compressed on its
+ * own into a complete gzip member; members are written to the target in input
+ * order. Concatenated members form a standard multi-member gzip stream, so
+ * gunzip, zcat and GZIPInputStream read the file as one. Each block restarts
+ * the compression dictionary, which costs a little ratio at the default
+ * 1 MB block size but lets compression use every core.
+ *
+ * At most two blocks per worker are in flight; a writer that gets further
+ * ahead waits for the oldest block, which keeps memory bounded.
+ */
+public class ParallelGzipChannel implements WritableByteChannel {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    
+    private static final byte[] MEMBER_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final ThreadLocal<Deflater[]> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater[10]);
+    
+    private final WritableByteChannel target;
+    private final boolean ownsTarget;
+    private final ExecutorService pool;
+    private final int level;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block;
+    private int blockFill;
+    private long bytesIn;
+    private long bytesOut;
+    private boolean open = true;
+    
+    /**
+     * Compress into a target channel (left open by close()) on the given pool
+     * @param level Deflater level, 1 (fastest) to 9 (smallest), or Deflater.DEFAULT_COMPRESSION
+     */
+    public ParallelGzipChannel(WritableByteChannel target, ExecutorService pool, int level, int blockSize) {
+        this(target, false, pool, level, blockSize);
+    }
+    
+    private ParallelGzipChannel(WritableByteChannel target, boolean ownsTarget, ExecutorService pool, int level,
+                                int blockSize) {
+        this.target = target;
+        this.ownsTarget = ownsTarget;
+        this.pool = pool;
+        this.level = level == Deflater.DEFAULT_COMPRESSION ? 6 : Math.max(1, Math.min(9, level));
+        this.block = new byte[Math.max(4096, blockSize)];
+        int workers = pool instanceof ForkJoinPool ? ((ForkJoinPool) pool).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = Math.max(2, workers * 2);
+    }
+    
+    /**
+     * Create or truncate a .gz file, compressing on the common pool
+     */
+    public static ParallelGzipChannel open(Path path) throws IOException {
+        return open(path, ForkJoinPool.commonPool(), Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+    
+    public static ParallelGzipChannel open(Path path, ExecutorService pool, int level, int blockSize)
+            throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new ParallelGzipChannel(channel, true, pool, level, blockSize);
+    }
+    
+    @Override
+    public synchronized int write(ByteBuffer source) throws IOException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        int written = source.remaining();
+        while (source.hasRemaining()) {
+            int chunk = Math.min(source.remaining(), block.length - blockFill);
+            source.get(block, blockFill, chunk);
+            blockFill += chunk;
+            if (blockFill == block.length) {
+                submitBlock();
+            }
+        }
+        bytesIn += written;
+        return written;
+    }
+    
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+    
+    /**
+     * Compress the last partial block, write every member and close the file
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            if (blockFill > 0 || bytesIn == 0) {
+                submitBlock(); // an empty input still gets one (empty) member
+            }
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            for (Future<byte[]> pending : inFlight) {
+                pending.cancel(true);
+            }
+            if (ownsTarget) {
+                target.close();
+            }
+        }
+    }
+    
+    public synchronized long getBytesIn() { return bytesIn; }
+    public synchronized long getBytesOut() { return bytesOut; }
+    
+    private void submitBlock() throws IOException {
+        if (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+        byte[] input = block;
+        int length = blockFill;
+        int compressionLevel = level;
+        inFlight.add(pool.submit(() -> compress(input, length, compressionLevel)));
+        block = new byte[input.length];
+        blockFill = 0;
+    }
+    
+    private void writeOldest() throws IOException {
+        byte[] member;
+        try {
+            member = inFlight.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Compression interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(member);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        bytesOut += member.length;
+    }
+    
+    /**
+     * One complete gzip member: header, raw deflate data, CRC-32 and size
+     */
+    static byte[] compress(byte[] input, int length, int level) {
+        Deflater[] deflaters = DEFLATERS.get();
+        Deflater deflater = deflaters[level];
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+            deflaters[level] = deflater;
+        }
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        
+        byte[] output = new byte[MEMBER_HEADER.length + length + length / 1000 + 64];
+        System.arraycopy(MEMBER_HEADER, 0, output, 0, MEMBER_HEADER.length);
+        int size = MEMBER_HEADER.length;
+        while (!deflater.finished()) {
+            if (size == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            size += deflater.deflate(output, size, output.length - size);
+        }
+        
+        CRC32 crc = new CRC32();
+        crc.update(input, 0, length);
+        if (output.length - size < 8) {
+            output = Arrays.copyOf(output, size + 8);
+        }
+        putIntLE(output, size, (int) crc.getValue());
+        putIntLE(output, size + 4, length);
+        return Arrays.copyOf(output, size + 8);
+    }
+    
+    private static void putIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 24);
+    }
+}
\ No newline at end of file
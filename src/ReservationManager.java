@@ -0,0 +1,332 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Two-phase holds on inventory stock for dispatch desks sharing a warehouse.
+ *
+ * reserve() takes the units out of stock at once, so no other desk or
+ * allocation run can hand them out; confirm() makes the hold final and
+ * cancel() puts the units back. Holds that are neither confirmed nor
+ * cancelled within the time-to-live expire and their units are restocked.
+ *
+ * Expiry uses a hashed timer wheel: each hold is queued in the slot of its
+ * deadline tick, and advancing the wheel only visits the slots whose time has
+ * come, so reclaiming a hold costs O(1) no matter how many are outstanding.
+ * Confirmed and cancelled holds are simply dropped when their slot comes up.
+ *
+ * Reserving, confirming and cancelling take no shared lock: stock is claimed
+ * with the supply's own compare-and-set (use a ConcurrentInventory when
+ * several threads reserve), each hold changes state with one CAS, and the
+ * index and wheel slots are concurrent collections. Only the sweep is
+ * serialized, and a thread that finds a sweep running just skips it.
+ */
+public class ReservationManager implements AutoCloseable {
+    public enum State { HELD, CONFIRMED, CANCELLED, EXPIRED }
+    
+    private static final int WHEEL_SLOTS = 512; // power of two
+    private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final Inventory inventory;
+    private final long ttlNanos;
+    private final long tickNanos;
+    private final long origin = System.nanoTime();
+    private final ConcurrentHashMap<Long, Reservation> held = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    
+    private final ConcurrentLinkedQueue<Reservation>[] wheel;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private long sweptTick; // last tick whose slot was processed, guarded by sweepLock
+    private ScheduledExecutorService sweeper;
+    
+    public ReservationManager(Inventory inventory, long ttlMillis) {
+        this.inventory = inventory;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, ttlMillis));
+        // About 1/128 of the TTL per tick: holds expire at most that late
+        this.tickNanos = Math.max(MIN_TICK_NANOS, ttlNanos / 128);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ConcurrentLinkedQueue<Reservation>[] slots = new ConcurrentLinkedQueue[WHEEL_SLOTS];
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            slots[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.wheel = slots;
+    }
+    
+    /**
+     * Hold units of one supply
+     * @return The hold, or null if the supply is unknown or short of stock
+     */
+    public Reservation reserve(String holder, String supplyName, int quantity) {
+        return reserve(holder, Collections.singletonMap(supplyName, quantity));
+    }
+    
+    /**
+     * Hold several supplies at once; either every line is held or none is.
+     * Lines of zero (or null) units hold nothing and are skipped.
+     * @return The hold, or null if any supply is unknown or short of stock
+     * @throws IllegalArgumentException if a line asks for a negative quantity
+     */
+    public Reservation reserve(String holder, Map<String, Integer> lines) {
+        for (Integer quantity : lines.values()) {
+            if (quantity != null && quantity < 0) {
+                throw new IllegalArgumentException("Negative quantity in reservation: " + quantity);
+            }
+        }
+        int[] typeIds = new int[lines.size()];
+        int[] quantities = new int[lines.size()];
+        LotDraws draws = new LotDraws();
+        int taken = 0;
+        for (Map.Entry<String, Integer> line : lines.entrySet()) {
+            int quantity = line.getValue() != null ? line.getValue() : 0;
+            if (quantity == 0) {
+                continue;
+            }
+            Supply supply = inventory.getSupply(line.getKey());
+            if (supply == null || !inventory.claimExactly(supply, quantity, draws)) {
+                release(typeIds, quantities, taken, draws);
+                return null;
+            }
+            typeIds[taken] = supply.getTypeId();
+            quantities[taken] = quantity;
+            taken++;
+        }
+        if (taken < typeIds.length) {
+            typeIds = Arrays.copyOf(typeIds, taken);
+            quantities = Arrays.copyOf(quantities, taken);
+        }
+        
+        long deadline = System.nanoTime() + ttlNanos;
+        Reservation reservation = new Reservation(nextId.incrementAndGet(), holder, typeIds, quantities,
+                draws.isEmpty() ? null : draws, deadline, tickOf(deadline));
+        held.put(reservation.id, reservation);
+        wheel[(int) (reservation.deadlineTick & (WHEEL_SLOTS - 1))].offer(reservation);
+        return reservation;
+    }
+    
+    /**
+     * Make a hold final; its units stay out of stock
+     * @return false if the hold is unknown, already settled or past its deadline
+     */
+    public boolean confirm(long reservationId) {
+        Reservation reservation = held.get(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        if (System.nanoTime() - reservation.deadline > 0) {
+            expire(reservation);
+            return false;
+        }
+        return settle(reservation, State.CONFIRMED);
+    }
+    
+    /**
+     * Drop a hold and put its units back into stock
+     * @return false if the hold is unknown or already settled
+     */
+    public boolean cancel(long reservationId) {
+        Reservation reservation = held.get(reservationId);
+        return reservation != null && settle(reservation, State.CANCELLED);
+    }
+    
+    /**
+     * Expire every hold whose deadline has passed
+     * @return Number of holds expired, 0 if another thread is already sweeping
+     */
+    public int reclaimExpired() {
+        if (!sweepLock.tryLock()) {
+            return 0;
+        }
+        try {
+            long now = tickOf(System.nanoTime());
+            // After a long pause every slot is due once; no need to go round twice
+            long from = Math.max(sweptTick + 1, now - WHEEL_SLOTS + 1);
+            int expired = 0;
+            List<Reservation> later = new ArrayList<>();
+            for (long tick = from; tick <= now; tick++) {
+                ConcurrentLinkedQueue<Reservation> slot = wheel[(int) (tick & (WHEEL_SLOTS - 1))];
+                Reservation reservation;
+                while ((reservation = slot.poll()) != null) {
+                    if (reservation.getState() != State.HELD) {
+                        continue; // settled: dropped here in O(1)
+                    }
+                    if (reservation.deadlineTick <= now) {
+                        if (expire(reservation)) {
+                            expired++;
+                        }
+                    } else {
+                        later.add(reservation); // deadline one or more turns of the wheel away
+                    }
+                }
+                for (Reservation next : later) {
+                    slot.offer(next);
+                }
+                later.clear();
+            }
+            sweptTick = Math.max(sweptTick, now);
+            return expired;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+    
+    /**
+     * Sweep expired holds in the background, once per wheel tick
+     */
+    public synchronized void start() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "reservation-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::reclaimExpired, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+    
+    /**
+     * Stop the background sweep; outstanding holds are left as they are
+     */
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+    
+    /**
+     * Look up an outstanding hold
+     */
+    public Reservation getReservation(long reservationId) {
+        return held.get(reservationId);
+    }
+    
+    /**
+     * Outstanding holds (read-only live view)
+     */
+    public Collection<Reservation> getHeld() {
+        return Collections.unmodifiableCollection(held.values());
+    }
+    
+    public int getHeldCount() {
+        return held.size();
+    }
+    
+    /**
+     * Units of a supply currently on hold
+     */
+    public int getHeldQuantity(String supplyName) {
+        int typeId = SupplyTypeRegistry.idOf(supplyName);
+        int total = 0;
+        for (Reservation reservation : held.values()) {
+            total += reservation.getQuantity(typeId);
+        }
+        return total;
+    }
+    
+    public Inventory getInventory() {
+        return inventory;
+    }
+    
+    private boolean expire(Reservation reservation) {
+        return settle(reservation, State.EXPIRED);
+    }
+    
+    /**
+     * Move a hold out of HELD exactly once, restocking unless it was confirmed
+     */
+    private boolean settle(Reservation reservation, State outcome) {
+        if (!reservation.state.compareAndSet(State.HELD.ordinal(), outcome.ordinal())) {
+            return false;
+        }
+        held.remove(reservation.id, reservation);
+        if (outcome != State.CONFIRMED) {
+            release(reservation.typeIds, reservation.quantities, reservation.typeIds.length, reservation.draws);
+        }
+        reservation.draws = null; // settled: nothing can be returned any more
+        return true;
+    }
+    
+    private void release(int[] typeIds, int[] quantities, int count, LotDraws draws) {
+        for (int i = 0; i < count; i++) {
+            inventory.restock(inventory.getSupply(typeIds[i]), quantities[i], draws);
+        }
+    }
+    
+    private long tickOf(long nanoTime) {
+        return (nanoTime - origin + tickNanos - 1) / tickNanos;
+    }
+    
+    /**
+     * Units held for one desk until confirmed, cancelled or expired
+     */
+    public static final class Reservation {
+        private static final State[] STATES = State.values();
+        
+        private final long id;
+        private final String holder;
+        private final int[] typeIds;
+        private final int[] quantities;
+        private LotDraws draws; // dated lots the hold drew from, null if none or once settled
+        private final long deadline;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(State.HELD.ordinal());
+        
+        Reservation(long id, String holder, int[] typeIds, int[] quantities, LotDraws draws, long deadline,
+                    long deadlineTick) {
+            this.id = id;
+            this.holder = holder;
+            this.typeIds = typeIds;
+            this.quantities = quantities;
+            this.draws = draws;
+            this.deadline = deadline;
+            this.deadlineTick = deadlineTick;
+        }
+        
+        // Getters
+        public long getId() { return id; }
+        public String getHolder() { return holder; }
+        public State getState() { return STATES[state.get()]; }
+        
+        /**
+         * Held units of a supply type, 0 if not part of this hold
+         */
+        public int getQuantity(int typeId) {
+            for (int i = 0; i < typeIds.length; i++) {
+                if (typeIds[i] == typeId) {
+                    return quantities[i];
+                }
+            }
+            return 0;
+        }
+        
+        /**
+         * Held units per supply name
+         */
+        public Map<String, Integer> getLines() {
+            Map<String, Integer> lines = new LinkedHashMap<>();
+            for (int i = 0; i < typeIds.length; i++) {
+                lines.put(SupplyTypeRegistry.nameOf(typeIds[i]), quantities[i]);
+            }
+            return lines;
+        }
+        
+        /**
+         * Time left before the hold expires, 0 once it is due
+         */
+        public long getRemainingMillis() {
+            return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Reservation #%d (%s): %s, %s", id, holder, getLines(), getState());
+        }
+    }
+}
\ No newline at end of file
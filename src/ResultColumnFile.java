@@ -0,0 +1,377 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Binary columnar file of allocation results for downstream analytics.
+ *
+ * Every column holds one fixed-width value per result row, so a reader maps
+ * just the column it needs (total value, one supply's quantity, ...) and
+ * scans it as an IntBuffer or DoubleBuffer without decoding anything else.
+ * Family IDs are kept in a string section addressed by the family_id column
+ * (start offsets), and supply columns are named by the supply dictionary in
+ * the column directory.
+ *
+ * Layout (little-endian, so columns map straight onto x86 memory): header,
+ * column directory, columns (each 8-byte aligned), family ID strings. A
+ * directory entry is a kind byte, the column name (unsigned short byte length
+ * and UTF-8) and the column's file offset.
+ *
+ * Only readers map the file. write() fills each column through its own
+ * direct buffer with positional channel writes into a temporary file that
+ * then replaces the target, so no writable mapping outlives the export and a
+ * file can be exported again while an older copy is being read.
+ */
+public class ResultColumnFile {
+    public static final int FORMAT_VERSION = 1;
+    
+    // Fixed columns
+    public static final String FAMILY_ID = "family_id";
+    public static final String FAMILY_SIZE = "family_size";
+    public static final String DISTANCE = "distance";
+    public static final String URGENCY = "urgency";
+    public static final String PRIORITY_SCORE = "priority_score";
+    public static final String TOTAL_VALUE = "total_value";
+    public static final String TOTAL_WEIGHT = "total_weight";
+    public static final String ALLOCATION_SCORE = "allocation_score";
+    
+    private static final int MAGIC = 0x534D5243; // "SMRC"
+    private static final int HEADER_BYTES = 48;
+    private static final byte INT_COLUMN = 0;
+    private static final byte DOUBLE_COLUMN = 1;
+    private static final byte SUPPLY_COLUMN = 2; // int quantities of one supply type
+    private static final int CHUNK = 1 << 20;
+    private static final int COLUMN_BUFFER = 64 << 10;
+    
+    // File order of the fixed columns; write() fills them by index
+    private static final String[] INT_COLUMNS = {FAMILY_ID, FAMILY_SIZE, URGENCY, TOTAL_VALUE, TOTAL_WEIGHT};
+    private static final String[] DOUBLE_COLUMNS = {DISTANCE, PRIORITY_SCORE, ALLOCATION_SCORE};
+    
+    private ResultColumnFile() {
+    }
+    
+    /**
+     * Write results whose family the lookup finds, in list order
+     * @return Rows written
+     */
+    public static int write(List<AllocationResult> allResults, Function<String, Family> families, Path path)
+            throws IOException {
+        List<AllocationResult> results = new ArrayList<>(allResults.size());
+        List<Family> rowFamilies = new ArrayList<>(allResults.size());
+        for (AllocationResult result : allResults) {
+            Family family = families.apply(result.getFamilyId());
+            if (family != null) {
+                results.add(result);
+                rowFamilies.add(family);
+            }
+        }
+        int rows = results.size();
+        int typeCount = SupplyTypeRegistry.size();
+        
+        // Directory: fixed columns, then one column per supply type
+        List<String> names = new ArrayList<>();
+        List<Byte> kinds = new ArrayList<>();
+        for (String name : INT_COLUMNS) {
+            names.add(name);
+            kinds.add(INT_COLUMN);
+        }
+        for (String name : DOUBLE_COLUMNS) {
+            names.add(name);
+            kinds.add(DOUBLE_COLUMN);
+        }
+        for (int typeId = 0; typeId < typeCount; typeId++) {
+            names.add(SupplyTypeRegistry.nameOf(typeId));
+            kinds.add(SUPPLY_COLUMN);
+        }
+        long directoryBytes = 0;
+        for (String name : names) {
+            directoryBytes += 11 + nameBytes(name).length;
+        }
+        long[] offsets = new long[names.size()];
+        long position = align(HEADER_BYTES + directoryBytes);
+        for (int c = 0; c < names.size(); c++) {
+            offsets[c] = position;
+            position = align(position + (long) rows * width(kinds.get(c)));
+        }
+        long heapOffset = position;
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // One pass over the rows, appending to every column through its own buffer
+            ColumnWriter[] columns = new ColumnWriter[names.size()];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new ColumnWriter(channel, offsets[c], COLUMN_BUFFER);
+            }
+            int fixed = INT_COLUMNS.length + DOUBLE_COLUMNS.length;
+            ColumnWriter heap = new ColumnWriter(channel, heapOffset, CHUNK);
+            long heapLength = 0;
+            for (int row = 0; row < rows; row++) {
+                AllocationResult result = results.get(row);
+                Family family = rowFamilies.get(row);
+                byte[] id = family.getFamilyId().getBytes(StandardCharsets.UTF_8);
+                if (heapLength + id.length > Integer.MAX_VALUE) {
+                    throw new IOException("Family IDs too large for a result column file");
+                }
+                columns[0].putInt((int) heapLength); // FAMILY_ID: start of the ID in the string section
+                columns[1].putInt(family.getSize());
+                columns[2].putInt(family.getUrgencyScore());
+                columns[3].putInt(result.getTotalValue());
+                columns[4].putInt(result.getTotalWeight());
+                columns[5].putDouble(family.getDistance());
+                columns[6].putDouble(family.getPriorityScore());
+                columns[7].putDouble(result.getAllocationScore());
+                for (int typeId = 0; typeId < typeCount; typeId++) {
+                    columns[fixed + typeId].putInt(result.getAllocatedQuantity(typeId));
+                }
+                heapLength += id.length;
+                heap.put(id);
+            }
+            for (ColumnWriter column : columns) {
+                column.drain();
+            }
+            heap.drain();
+            if (channel.size() < heapOffset + heapLength) {
+                channel.write(ByteBuffer.allocate(1), heapOffset + heapLength - 1); // no family IDs: pad to full length
+            }
+            
+            ByteBuffer header = ByteBuffer.allocate((int) (HEADER_BYTES + directoryBytes)).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putShort((short) FORMAT_VERSION).putShort((short) 0)
+                    .putInt(rows).putInt(names.size()).putLong(heapOffset).putLong(heapLength)
+                    .putLong(heapOffset + heapLength).putLong(0);
+            for (int c = 0; c < names.size(); c++) {
+                byte[] name = nameBytes(names.get(c));
+                header.put(kinds.get(c)).putShort((short) name.length).put(name).putLong(offsets[c]);
+            }
+            header.flip();
+            long at = 0;
+            while (header.hasRemaining()) {
+                at += channel.write(header, at);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+    
+    private static int width(byte kind) {
+        return kind == DOUBLE_COLUMN ? 8 : 4;
+    }
+    
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+    
+    private static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Column name too long: " + name.substring(0, 32) + "...");
+        }
+        return bytes;
+    }
+    
+    /**
+     * Appends to one region of the file through a direct buffer, with
+     * positional writes
+     */
+    private static final class ColumnWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private long position;
+        
+        ColumnWriter(FileChannel channel, long position, int bufferBytes) {
+            this.channel = channel;
+            this.position = position;
+            this.buffer = ByteBuffer.allocateDirect(bufferBytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            buffer.putInt(value);
+        }
+        
+        void putDouble(double value) throws IOException {
+            if (buffer.remaining() < 8) {
+                drain();
+            }
+            buffer.putDouble(value);
+        }
+        
+        void put(byte[] bytes) throws IOException {
+            if (buffer.remaining() < bytes.length) {
+                drain();
+            }
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    position += channel.write(wrapped, position);
+                }
+            } else {
+                buffer.put(bytes);
+            }
+        }
+        
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Open a file for column scans
+     */
+    public static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+    
+    /**
+     * Memory-maps a result column file one column at a time
+     */
+    public static final class Reader implements AutoCloseable {
+        private final FileChannel channel;
+        private final int rows;
+        private final long heapOffset;
+        private final long heapLength;
+        private final Map<String, Long> offsets = new LinkedHashMap<>();
+        private final Map<String, Byte> kinds = new HashMap<>();
+        private final List<String> supplyNames = new ArrayList<>();
+        private IntBuffer familyIdOffsets;
+        private ByteBuffer heap;
+        
+        private Reader(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_BYTES))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                if (size < HEADER_BYTES || header.getInt() != MAGIC) {
+                    throw new IOException("Not a result column file: " + path);
+                }
+                int version = header.getShort();
+                header.getShort();
+                if (version < 1 || version > FORMAT_VERSION) {
+                    throw new IOException("Unsupported result column file version " + version + " in " + path);
+                }
+                rows = header.getInt();
+                int columnCount = header.getInt();
+                heapOffset = header.getLong();
+                heapLength = header.getLong();
+                if (header.getLong() != size) {
+                    throw new IOException("Truncated result column file: " + path);
+                }
+                
+                ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                        Math.min(size, heapOffset) - HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int c = 0; c < columnCount; c++) {
+                    byte kind = directory.get();
+                    byte[] name = new byte[directory.getShort() & 0xFFFF];
+                    directory.get(name);
+                    String column = new String(name, StandardCharsets.UTF_8);
+                    offsets.put(column, directory.getLong());
+                    kinds.put(column, kind);
+                    if (kind == SUPPLY_COLUMN) {
+                        supplyNames.add(column);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e instanceof IOException ? (IOException) e : new IOException("Corrupt result column file", e);
+            }
+        }
+        
+        public int getRowCount() { return rows; }
+        
+        /**
+         * Supply types with a quantity column, in file order
+         */
+        public List<String> getSupplyNames() {
+            return Collections.unmodifiableList(supplyNames);
+        }
+        
+        /**
+         * An int column (family_size, urgency, total_value, total_weight)
+         */
+        public IntBuffer getIntColumn(String column) throws IOException {
+            return map(column, INT_COLUMN).asIntBuffer();
+        }
+        
+        /**
+         * A double column (distance, priority_score, allocation_score)
+         */
+        public DoubleBuffer getDoubleColumn(String column) throws IOException {
+            return map(column, DOUBLE_COLUMN).asDoubleBuffer();
+        }
+        
+        /**
+         * Allocated units of one supply per row; null if the file has no such supply
+         */
+        public IntBuffer getSupplyColumn(String supplyName) throws IOException {
+            return isSupply(supplyName) ? map(supplyName, SUPPLY_COLUMN).asIntBuffer() : null;
+        }
+        
+        /**
+         * Sum of an int or supply column
+         */
+        public long sum(String column) throws IOException {
+            IntBuffer values = map(column, isSupply(column) ? SUPPLY_COLUMN : INT_COLUMN).asIntBuffer();
+            long total = 0;
+            for (int row = 0; row < rows; row++) {
+                total += values.get(row);
+            }
+            return total;
+        }
+        
+        /**
+         * Family ID of one row, decoded from the string section
+         */
+        public synchronized String getFamilyId(int row) throws IOException {
+            if (familyIdOffsets == null) {
+                familyIdOffsets = map(FAMILY_ID, INT_COLUMN).asIntBuffer();
+                heap = channel.map(FileChannel.MapMode.READ_ONLY, heapOffset, heapLength);
+            }
+            int start = familyIdOffsets.get(row);
+            int end = row + 1 < rows ? familyIdOffsets.get(row + 1) : (int) heapLength;
+            byte[] bytes = new byte[end - start];
+            ByteBuffer view = heap.duplicate();
+            view.position(start);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        
+        private boolean isSupply(String column) {
+            Byte kind = kinds.get(column);
+            return kind != null && kind == SUPPLY_COLUMN;
+        }
+        
+        private ByteBuffer map(String column, byte kind) throws IOException {
+            Long offset = offsets.get(column);
+            Byte actual = kinds.get(column);
+            if (offset == null || actual == null || actual != kind) {
+                throw new IllegalArgumentException("No " + (kind == DOUBLE_COLUMN ? "double" : "int")
+                        + " column " + column);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) rows * width(kind));
+            return mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+import java.util.*;
+
+/**
+ * Default strategy: families are served one at a time in priority order and each
+ * takes what its knapsack allows from the stock left by the families before it
+ */
+public class SequentialAllocationStrategy implements AllocationStrategy {
+    
+    @Override
+    public List<AllocationResult> allocate(SupplyAllocator allocator, List<Family> families) {
+        List<AllocationResult> results = new ArrayList<>(families.size());
+        for (Family family : families) {
+            results.add(allocator.allocateToFamily(family));
+        }
+        return results;
+    }
+    
+    @Override
+    public List<AllocationResult> allocate(SupplyAllocator allocator, FamilyTable table, int[] rows) {
+        List<AllocationResult> results = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            results.add(allocator.allocateToRow(table, row));
+        }
+        return results;
+    }
+}
\ No newline at end of file
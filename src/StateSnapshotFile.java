@@ -0,0 +1,364 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file holding an allocator's full state: inventory,
+ * families and the last allocation results.
+ *
+ * Files are written and read with positional FileChannel I/O through one
+ * reused direct buffer, so saving or restoring millions of families is a
+ * sequential pass with no text parsing. The file is not memory-mapped: a
+ * mapping stays open until it is garbage collected, and on Windows a mapped
+ * file can be neither replaced nor moved, which would break saving over the
+ * file just loaded. A file is written to a temporary sibling and moved into
+ * place, and carries a CRC32 that is checked on load.
+ *
+ * Layout (big-endian): header, supply type names, supplies, families,
+ * results, then CRC32 and the magic number again. Strings are an unsigned
+ * short byte length followed by UTF-8 bytes.
+ */
+public class StateSnapshotFile {
+    public static final int FORMAT_VERSION = 1;
+    
+    private static final int MAGIC = 0x534D5353; // "SMSS"
+    private static final int HEADER_BYTES = 32;
+    private static final int TRAILER_BYTES = 8;
+    private static final int BUFFER_BYTES = 4 << 20;
+    private static final int MAX_RECORD = 0x10000 + 64; // a string plus fixed fields
+    
+    private StateSnapshotFile() {
+    }
+    
+    /**
+     * Write the allocator's state to a file, replacing it atomically
+     * @return Bytes written
+     */
+    public static long save(SupplyAllocator allocator, Path path) throws IOException {
+        Inventory inventory = allocator.getInventory();
+        List<Supply> supplies = inventory.getAllSupplies();
+        List<Family> families = allocator.getFamilies();
+        List<AllocationResult> results = allocator.getAllocationResults();
+        int typeCount = SupplyTypeRegistry.size();
+        
+        // Exact size first; it is what save() reports
+        long size = HEADER_BYTES + TRAILER_BYTES;
+        String[] typeNames = new String[typeCount];
+        for (int typeId = 0; typeId < typeCount; typeId++) {
+            typeNames[typeId] = SupplyTypeRegistry.nameOf(typeId);
+            size += stringBytes(typeNames[typeId]);
+        }
+        for (Supply supply : supplies) {
+            size += 16 + stringBytes(unitOf(supply));
+        }
+        for (Family family : families) {
+            size += 14 + stringBytes(family.getFamilyId());
+        }
+        for (AllocationResult result : results) {
+            size += 18 + stringBytes(result.getFamilyId()) + 8L * result.getMatrix().getTypeCount(result.getRow());
+        }
+        
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter out = new ChannelWriter(channel);
+            ByteBuffer header = out.reserve(HEADER_BYTES);
+            header.putInt(MAGIC).putShort((short) FORMAT_VERSION).putShort((short) 0)
+                    .putInt(inventory.getMaxCapacity()).putInt(allocator.getBaseCapacityPerFamily())
+                    .putInt(typeCount).putInt(supplies.size()).putInt(families.size()).putInt(results.size());
+            
+            for (String name : typeNames) {
+                putString(out.reserve(MAX_RECORD), name);
+            }
+            for (Supply supply : supplies) {
+                ByteBuffer buffer = out.reserve(MAX_RECORD);
+                buffer.putInt(supply.getTypeId()).putInt(supply.getWeight()).putInt(supply.getValue())
+                        .putInt(supply.getQuantity());
+                putString(buffer, unitOf(supply));
+            }
+            for (Family family : families) {
+                ByteBuffer buffer = out.reserve(MAX_RECORD);
+                putString(buffer, family.getFamilyId());
+                buffer.putInt(family.getSize()).putDouble(family.getDistance())
+                        .put((byte) family.getUrgencyScore()).put((byte) (family.isActive() ? 1 : 0));
+            }
+            for (AllocationResult result : results) {
+                AllocationMatrix matrix = result.getMatrix();
+                int row = result.getRow();
+                int count = matrix.getTypeCount(row);
+                ByteBuffer buffer = out.reserve(MAX_RECORD + 8 * count);
+                putString(buffer, result.getFamilyId());
+                buffer.putInt(matrix.getTotalValue(row)).putInt(matrix.getTotalWeight(row))
+                        .putDouble(matrix.getScore(row)).putShort((short) count);
+                for (int typeId = 0; typeId < typeCount && count > 0; typeId++) {
+                    int quantity = matrix.getQuantity(row, typeId);
+                    if (quantity != 0) {
+                        buffer.putInt(typeId).putInt(quantity);
+                        count--;
+                    }
+                }
+            }
+            
+            int crc = out.checksum();
+            out.reserve(TRAILER_BYTES).putInt(crc).putInt(MAGIC);
+            out.finish();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+    
+    /**
+     * Restore an allocator from a snapshot file
+     */
+    public static SupplyAllocator load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            ChannelReader in = new ChannelReader(channel, size - TRAILER_BYTES);
+            ByteBuffer header = in.require(HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            int version = header.getShort();
+            header.getShort();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + path);
+            }
+            int maxCapacity = header.getInt();
+            int baseCapacity = header.getInt();
+            int typeCount = header.getInt();
+            int supplyCount = header.getInt();
+            int familyCount = header.getInt();
+            int resultCount = header.getInt();
+            
+            try {
+                // File type indexes become this process's registry IDs
+                int[] typeIds = new int[typeCount];
+                String[] typeNames = new String[typeCount];
+                for (int i = 0; i < typeCount; i++) {
+                    typeNames[i] = getString(in.require(MAX_RECORD));
+                    typeIds[i] = SupplyTypeRegistry.register(typeNames[i]);
+                }
+                
+                Inventory inventory = new Inventory(maxCapacity, new HashMap<>(), false);
+                for (int i = 0; i < supplyCount; i++) {
+                    ByteBuffer buffer = in.require(MAX_RECORD);
+                    String name = typeNames[buffer.getInt()];
+                    int weight = buffer.getInt();
+                    int value = buffer.getInt();
+                    int quantity = buffer.getInt();
+                    inventory.addSupply(new Supply(name, weight, value, quantity, getString(buffer)));
+                }
+                
+                List<Family> families = new ArrayList<>(familyCount);
+                for (int i = 0; i < familyCount; i++) {
+                    ByteBuffer buffer = in.require(MAX_RECORD);
+                    String familyId = getString(buffer);
+                    Family family = new Family(familyId, buffer.getInt(), buffer.getDouble(), buffer.get());
+                    if (buffer.get() == 0) {
+                        family.setActive(false);
+                    }
+                    families.add(family);
+                }
+                
+                AllocationMatrix matrix = new AllocationMatrix(resultCount);
+                List<AllocationResult> results = new ArrayList<>(resultCount);
+                for (int i = 0; i < resultCount; i++) {
+                    ByteBuffer buffer = in.require(MAX_RECORD);
+                    AllocationResult result = matrix.newResult(getString(buffer));
+                    int totalValue = buffer.getInt();
+                    int totalWeight = buffer.getInt();
+                    double score = buffer.getDouble();
+                    int count = buffer.getShort() & 0xFFFF;
+                    buffer = in.require(8 * count);
+                    for (int j = 0; j < count; j++) {
+                        int typeIndex = buffer.getInt();
+                        result.addAllocatedSupply(typeIds[typeIndex], buffer.getInt(), 0, 0);
+                    }
+                    matrix.setTotals(result.getRow(), totalValue, totalWeight);
+                    matrix.setScore(result.getRow(), score);
+                    results.add(result);
+                }
+                
+                int crc = in.checksum();
+                ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+                while (trailer.hasRemaining() && channel.read(trailer, size - TRAILER_BYTES + trailer.position()) > 0) {
+                    // keep reading
+                }
+                trailer.flip();
+                if (in.position() != size - TRAILER_BYTES || trailer.getInt() != crc || trailer.getInt() != MAGIC) {
+                    throw new IOException("Snapshot file is corrupt: " + path);
+                }
+                
+                SupplyAllocator allocator = new SupplyAllocator(families, inventory, baseCapacity);
+                allocator.restoreResults(results);
+                return allocator;
+            } catch (RuntimeException e) {
+                throw new IOException("Snapshot file is corrupt: " + path, e);
+            }
+        }
+    }
+    
+    private static String unitOf(Supply supply) {
+        return supply.getUnit() != null ? supply.getUnit() : "";
+    }
+    
+    /**
+     * Encoded size of a string: length prefix plus UTF-8 bytes
+     */
+    private static long stringBytes(String value) {
+        int bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        if (bytes > 0xFFFF) {
+            throw new IllegalArgumentException("Value too long for a snapshot: " + value.length() + " chars");
+        }
+        return 2 + bytes;
+    }
+    
+    private static void putString(ByteBuffer buffer, String value) {
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = value.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            buffer.putShort((short) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+    }
+    
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Sequential writer that drains a direct buffer into the file
+     */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private long position;
+        
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        /**
+         * Buffer with room for a record of up to the given size
+         */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+            return buffer;
+        }
+        
+        /**
+         * CRC32 of everything written so far (taken once, before the trailer)
+         */
+        int checksum() throws IOException {
+            drain();
+            return (int) crc.getValue();
+        }
+        
+        void finish() throws IOException {
+            drain();
+            channel.force(true);
+        }
+        
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * Sequential reader that refills a direct buffer from the file
+     */
+    private static final class ChannelReader {
+        private final FileChannel channel;
+        private final long end;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private long filled; // file bytes read into the buffer so far
+        
+        ChannelReader(FileChannel channel, long end) throws IOException {
+            this.channel = channel;
+            this.end = end;
+            buffer.limit(0);
+            require(BUFFER_BYTES);
+        }
+        
+        /**
+         * Buffer holding at least the given number of bytes (or up to the end of the data)
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            if (buffer.remaining() < bytes && filled < end) {
+                checksumConsumed();
+                buffer.compact();
+                while (buffer.hasRemaining() && filled < end) {
+                    int limit = buffer.limit();
+                    buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), end - filled));
+                    int read = channel.read(buffer, filled);
+                    buffer.limit(limit);
+                    if (read < 0) {
+                        throw new EOFException();
+                    }
+                    filled += read;
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+        
+        long position() {
+            return filled - buffer.remaining();
+        }
+        
+        /**
+         * CRC32 of everything read so far (taken once, at the end)
+         */
+        int checksum() {
+            checksumConsumed();
+            return (int) crc.getValue();
+        }
+        
+        private void checksumConsumed() {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.flip();
+            crc.update(consumed);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,113 @@
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocates to families as they register instead of from a complete list.
+ *
+ * Arriving families wait in a bounded priority window (ordered by
+ * Family.compareTo, highest priority first). The window is released when it
+ * fills up or when the oldest waiting family has waited maxDelayMillis; each
+ * released family is served through the allocator's knapsack and its result
+ * goes to the allocator's listeners, not into a list. Memory therefore stays
+ * at one window no matter how many families pass through.
+ *
+ * When the inventory runs dry, offer() refuses new families so the intake side
+ * can hold them until stock is replenished.
+ */
+public class StreamingAllocator {
+    private final SupplyAllocator allocator;
+    private final PriorityQueue<Family> window;
+    private final int windowSize;
+    private final long maxDelayNanos;
+    private long oldestArrival;
+    private long releasedCount;
+    private long rejectedCount;
+    
+    public StreamingAllocator(SupplyAllocator allocator, int windowSize, long maxDelayMillis) {
+        this.allocator = allocator;
+        this.windowSize = Math.max(1, windowSize);
+        this.window = new PriorityQueue<>(this.windowSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxDelayMillis));
+    }
+    
+    /**
+     * Queue an arriving family
+     * @return false if the family was refused because no stock is left
+     */
+    public synchronized boolean offer(Family family) {
+        if (family == null) {
+            return false;
+        }
+        if (isBackpressured()) {
+            rejectedCount++;
+            return false;
+        }
+        
+        if (window.isEmpty()) {
+            oldestArrival = System.nanoTime();
+        }
+        window.add(family);
+        
+        if (window.size() >= windowSize || delayElapsed()) {
+            release();
+        }
+        return true;
+    }
+    
+    /**
+     * Time tick: release the window if its oldest family has waited long enough
+     * @return Number of families released
+     */
+    public synchronized int tick() {
+        return delayElapsed() ? release() : 0;
+    }
+    
+    /**
+     * Release everything that is waiting, regardless of window state
+     * @return Number of families released
+     */
+    public synchronized int flush() {
+        return release();
+    }
+    
+    /**
+     * Run tick() periodically on the given scheduler
+     */
+    public ScheduledFuture<?> scheduleTicks(ScheduledExecutorService scheduler, long periodMillis) {
+        return scheduler.scheduleAtFixedRate(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Check if intake should pause because the inventory is empty
+     */
+    public boolean isBackpressured() {
+        return !allocator.getInventory().hasSupplies();
+    }
+    
+    private boolean delayElapsed() {
+        return !window.isEmpty() && System.nanoTime() - oldestArrival >= maxDelayNanos;
+    }
+    
+    /**
+     * Serve the window in priority order
+     */
+    private int release() {
+        int released = 0;
+        AllocationMatrix results = new AllocationMatrix(window.size());
+        Family family;
+        while ((family = window.poll()) != null) {
+            allocator.allocateToFamily(family, results);
+            released++;
+        }
+        releasedCount += released;
+        return released;
+    }
+    
+    // Getters
+    public synchronized int getPendingCount() { return window.size(); }
+    public synchronized long getReleasedCount() { return releasedCount; }
+    public synchronized long getRejectedCount() { return rejectedCount; }
+    public int getWindowSize() { return windowSize; }
+}
\ No newline at end of file
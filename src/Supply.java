@@ -1,85 +1,288 @@
-/**
- * Represents a supply item with weight and value properties
- */
-public class Supply {
-    private String name;
-    private int weight; // weight per unit
-    private int value;  // value/importance per unit
-    private int quantity; // available quantity
-    private String unit; // measurement unit (kg, liters, pieces)
-    
-    public Supply(String name, int weight, int value, int quantity, String unit) {
-        this.name = name;
-        this.weight = weight;
-        this.value = value;
-        this.quantity = quantity;
-        this.unit = unit;
-    }
-    
-    // Getters
-    public String getName() { return name; }
-    public int getWeight() { return weight; }
-    public int getValue() { return value; }
-    public int getQuantity() { return quantity; }
-    public String getUnit() { return unit; }
-    
-    // Setters
-    public void setQuantity(int quantity) { 
-        this.quantity = Math.max(0, quantity); 
-    }
-    
-    public void setWeight(int weight) { this.weight = weight; }
-    public void setValue(int value) { this.value = value; }
-    
-    /**
-     * Reduce quantity by specified amount
-     * @param amount Amount to reduce
-     * @return True if successful, false if insufficient quantity
-     */
-    public boolean reduceQuantity(int amount) {
-        if (amount <= quantity) {
-            quantity -= amount;
-            return true;
-        }
-        return false;
-    }
-    
-    /**
-     * Add quantity
-     * @param amount Amount to add
-     */
-    public void addQuantity(int amount) {
-        if (amount > 0) {
-            quantity += amount;
-        }
-    }
-    
-    /**
-     * Check if supply is available
-     * @return true if quantity > 0
-     */
-    public boolean isAvailable() {
-        return quantity > 0;
-    }
-    
-    /**
-     * Get value-to-weight ratio for optimization
-     * @return ratio or 0 if weight is 0
-     */
-    public double getValueWeightRatio() {
-        return weight > 0 ? (double) value / weight : 0;
-    }
-    
-    @Override
-    public String toString() {
-        return String.format("Supply[%s: %d%s, Weight=%d, Value=%d, Available=%s]",
-                name, quantity, unit, weight, value, isAvailable());
-    }
-    
-    /**
-     * Create a copy of this supply with specified quantity
-     */
-    public Supply createCopy(int newQuantity) {
-        return new Supply(name, weight, value, newQuantity, unit);
-    }
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Represents a supply item with weight and value properties.
+ * Stock may be received in dated lots (see receiveLot). Lots sit in a
+ * min-heap on expiry date and every reduction takes the earliest expiring
+ * units first, in O(log lots) per lot used up. A claim that passes a
+ * LotDraws gets a record of the lots it took from; handing its units back
+ * with returnUnits refills those lots, so they keep their expiry date. Other
+ * additions count as undated and go last. Lots live on the inventory's own
+ * supplies only: copies and snapshots carry the total.
+ */
+public class Supply {
+    private String name;
+    private int weight; // weight per unit
+    private int value;  // value/importance per unit
+    private int quantity; // available quantity
+    private String unit; // measurement unit (kg, liters, pieces)
+    private int typeId = -1; // dense ID from SupplyTypeRegistry, set by Inventory
+    private Inventory owner; // notified of every quantity, value and weight change
+    private volatile PriorityQueue<SupplyLot> lots; // earliest expiry first; null until a lot arrives
+    private int lotUnits; // part of the quantity held in lots
+    private long lotSequence;
+    
+    public Supply(String name, int weight, int value, int quantity, String unit) {
+        this.name = name;
+        this.weight = weight;
+        this.value = value;
+        this.quantity = quantity;
+        this.unit = unit;
+    }
+    
+    // Getters
+    public String getName() { return name; }
+    public int getWeight() { return weight; }
+    public int getValue() { return value; }
+    public int getQuantity() { return quantity; }
+    public String getUnit() { return unit; }
+    public int getTypeId() { return typeId; }
+    
+    // Setters
+    public void setQuantity(int quantity) { 
+        int before = this.quantity;
+        this.quantity = Math.max(0, quantity); 
+        if (this.quantity < before) consumeLots(before - this.quantity, null);
+        stockChanged(before, this.quantity);
+    }
+    
+    public void setWeight(int weight) {
+        int before = this.weight;
+        this.weight = weight;
+        if (owner != null) owner.onSupplyRepriced(this, before);
+    }
+    
+    public void setValue(int value) {
+        this.value = value;
+        if (owner != null) owner.onSupplyRepriced(this, weight);
+    }
+    
+    void setTypeId(int typeId) { this.typeId = typeId; }
+    
+    void attachTo(Inventory inventory) { this.owner = inventory; }
+    
+    void detachFrom(Inventory inventory) {
+        if (owner == inventory) owner = null;
+    }
+    
+    /**
+     * Tell the owning inventory how the quantity moved
+     */
+    protected final void stockChanged(int before, int after) {
+        if (owner != null && before != after) {
+            owner.onSupplyStockChanged(this, before, after);
+        }
+    }
+    
+    /**
+     * Reduce quantity by specified amount
+     * @param amount Amount to reduce
+     * @return True if successful, false if insufficient quantity
+     */
+    public boolean reduceQuantity(int amount) {
+        return reduceQuantity(amount, null);
+    }
+    
+    /**
+     * Reduce quantity by specified amount, noting the lots used in draws
+     * (may be null)
+     */
+    public boolean reduceQuantity(int amount, LotDraws draws) {
+        if (amount <= quantity) {
+            quantity -= amount;
+            consumeLots(amount, draws);
+            stockChanged(quantity + amount, quantity);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Take up to the requested amount, whatever is left if less
+     * @param amount Amount wanted
+     * @return Amount actually taken
+     */
+    public int claimUpTo(int amount) {
+        return claimUpTo(amount, null);
+    }
+    
+    /**
+     * Take up to the requested amount, noting the lots used in draws (may be null)
+     */
+    public int claimUpTo(int amount, LotDraws draws) {
+        int taken = Math.min(Math.max(0, amount), quantity);
+        quantity -= taken;
+        consumeLots(taken, draws);
+        stockChanged(quantity + taken, quantity);
+        return taken;
+    }
+    
+    /**
+     * Add quantity
+     * @param amount Amount to add
+     */
+    public void addQuantity(int amount) {
+        if (amount > 0) {
+            quantity += amount;
+            stockChanged(quantity - amount, quantity);
+        }
+    }
+    
+    /**
+     * Put back units that a claim took earlier. They refill the lots recorded
+     * in its draws, most recent first, and those records are dropped; units
+     * beyond what was drawn (or with no draws) are undated. A lot that
+     * expired meanwhile takes its units back and is swept by the next
+     * expireLots.
+     */
+    public void returnUnits(int amount, LotDraws draws) {
+        if (amount <= 0) {
+            return;
+        }
+        if (lots == null || draws == null || draws.isEmpty()) {
+            addQuantity(amount);
+            return;
+        }
+        synchronized (this) {
+            draws.takeBack(this, amount, (lot, units) -> {
+                if (lot.getRemaining() == 0) {
+                    lots.add(lot); // used up lots leave the heap
+                }
+                lot.giveBack(units);
+                lotUnits += units;
+            });
+            addQuantity(amount);
+        }
+    }
+    
+    /**
+     * Receive a dated lot: adds its units to the quantity
+     */
+    public void receiveLot(String lotId, int quantity, LocalDate expiresOn) {
+        if (quantity <= 0 || expiresOn == null) {
+            return;
+        }
+        synchronized (this) {
+            if (lots == null) {
+                lots = new PriorityQueue<>();
+            }
+            lots.add(new SupplyLot(lotId, quantity, expiresOn, lotSequence++));
+            lotUnits += quantity;
+            addQuantity(quantity);
+        }
+    }
+    
+    /**
+     * Remove every lot that expired before the given day. Only the expired
+     * lots at the top of the heap are visited.
+     * @return Units removed from stock
+     */
+    public int expireLots(LocalDate today) {
+        if (lots == null) {
+            return 0;
+        }
+        synchronized (this) {
+            long day = today.toEpochDay();
+            List<SupplyLot> due = new ArrayList<>();
+            int units = 0;
+            while (!lots.isEmpty() && lots.peek().getExpiryDay() < day) {
+                SupplyLot lot = lots.poll();
+                due.add(lot);
+                units += lot.getRemaining();
+            }
+            if (units == 0) {
+                return 0;
+            }
+            // Put them back on top: the claim below takes exactly these, oldest first
+            lots.addAll(due);
+            return claimUpTo(units);
+        }
+    }
+    
+    /**
+     * Take units from the lots, earliest expiry first, after the quantity
+     * went down; undated units are only used once no lot is left
+     * @param draws Receives the lots used, or null
+     */
+    protected final void consumeLots(int units, LotDraws draws) {
+        if (lots == null || units <= 0) {
+            return;
+        }
+        synchronized (this) {
+            while (units > 0 && !lots.isEmpty()) {
+                SupplyLot oldest = lots.peek();
+                int taken = oldest.take(units);
+                units -= taken;
+                lotUnits -= taken;
+                if (draws != null) {
+                    draws.add(this, oldest, taken);
+                }
+                if (oldest.getRemaining() == 0) {
+                    lots.poll();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Whether stock changes must also update lots (see ConcurrentSupply)
+     */
+    protected final boolean hasLots() {
+        return lots != null;
+    }
+    
+    /**
+     * Lots in stock, earliest expiry first
+     */
+    public synchronized List<SupplyLot> getLots() {
+        if (lots == null) {
+            return Collections.emptyList();
+        }
+        List<SupplyLot> sorted = new ArrayList<>(lots);
+        Collections.sort(sorted);
+        return sorted;
+    }
+    
+    /**
+     * Expiry date of the oldest lot in stock, or null
+     */
+    public synchronized LocalDate getNextExpiry() {
+        return lots == null || lots.isEmpty() ? null : lots.peek().getExpiresOn();
+    }
+    
+    public synchronized int getLotUnits() {
+        return lotUnits;
+    }
+    
+    /**
+     * Check if supply is available
+     * @return true if quantity > 0
+     */
+    public boolean isAvailable() {
+        return getQuantity() > 0;
+    }
+    
+    /**
+     * Get value-to-weight ratio for optimization
+     * @return ratio or 0 if weight is 0
+     */
+    public double getValueWeightRatio() {
+        return weight > 0 ? (double) value / weight : 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Supply[%s: %d%s, Weight=%d, Value=%d, Available=%s]",
+                name, getQuantity(), unit, weight, value, isAvailable());
+    }
+    
+    /**
+     * Create a copy of this supply with specified quantity
+     */
+    public Supply createCopy(int newQuantity) {
+        Supply copy = new Supply(name, weight, value, newQuantity, unit);
+        copy.typeId = typeId;
+        return copy;
+    }
 }
\ No newline at end of file
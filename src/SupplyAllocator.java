@@ -1,251 +1,790 @@
-import java.util.*;
-
-/**
- * Core allocation engine using Greedy and Knapsack algorithms
- */
-public class SupplyAllocator {
-    private List<Family> families;
-    private Inventory inventory;
-    private List<AllocationResult> allocationResults;
-    private int baseCapacityPerFamily;
-    
-    public SupplyAllocator(int baseCapacityPerFamily) {
-        this.families = new ArrayList<>();
-        this.inventory = new Inventory(1000); // Default capacity
-        this.allocationResults = new ArrayList<>();
-        this.baseCapacityPerFamily = baseCapacityPerFamily;
-    }
-    
-    public SupplyAllocator(List<Family> families, Inventory inventory, int baseCapacityPerFamily) {
-        this.families = new ArrayList<>(families);
-        this.inventory = inventory;
-        this.allocationResults = new ArrayList<>();
-        this.baseCapacityPerFamily = baseCapacityPerFamily;
-    }
-    
-    /**
-     * Main allocation method using Greedy + Knapsack approach
-     */
-    public List<AllocationResult> allocateSupplies() {
-        allocationResults.clear();
-        
-        if (families.isEmpty() || !inventory.hasSupplies()) {
-            System.out.println("No families to serve or no supplies available.");
-            return allocationResults;
-        }
-        
-        // Step 1: Sort families by priority (Greedy approach)
-        List<Family> sortedFamilies = new ArrayList<>(families);
-        sortedFamilies.sort(Collections.reverseOrder()); // Sort by priority score descending
-        
-        // Filter only active families
-        sortedFamilies.removeIf(family -> !family.isActive());
-        
-        System.out.println("=== ALLOCATION PROCESS ===");
-        System.out.println("Families sorted by priority:");
-        for (int i = 0; i < sortedFamilies.size(); i++) {
-            System.out.printf("%d. %s\n", i+1, sortedFamilies.get(i));
-        }
-        
-        // Step 2: Allocate to each family using modified Knapsack
-        for (Family family : sortedFamilies) {
-            AllocationResult result = allocateToFamily(family);
-            allocationResults.add(result);
-        }
-        
-        return allocationResults;
-    }
-    
-    /**
-     * Allocate supplies to a specific family using 0/1 Knapsack approach
-     */
-    private AllocationResult allocateToFamily(Family family) {
-        AllocationResult result = new AllocationResult(family.getFamilyId());
-        
-        // Calculate family capacity based on size and priority
-        int familyCapacity = calculateFamilyCapacity(family);
-        
-        // Get available supplies
-        List<Supply> availableSupplies = inventory.getAvailableSupplies();
-        
-        if (availableSupplies.isEmpty()) {
-            return result;
-        }
-        
-        // Apply Knapsack algorithm
-        Map<String, Integer> allocation = knapsackAllocation(availableSupplies, familyCapacity, family);
-        
-        // Update inventory and result
-        for (Map.Entry<String, Integer> entry : allocation.entrySet()) {
-            String supplyName = entry.getKey();
-            int quantity = entry.getValue();
-            
-            if (quantity > 0) {
-                Supply supply = inventory.getSupply(supplyName);
-                if (supply != null && supply.reduceQuantity(quantity)) {
-                    result.addAllocatedSupply(supplyName, quantity, supply.getValue(), supply.getWeight());
-                }
-            }
-        }
-        
-        result.calculateAllocationScore(family.getPriorityScore());
-        
-        System.out.printf("Allocated to %s (Priority: %.2f): %s\n", 
-                family.getFamilyId(), family.getPriorityScore(), 
-                result.hasAllocations() ? "Success" : "No allocation possible");
-        
-        return result;
-    }
-    
-    /**
-     * Calculate capacity allocation for a family based on size and priority
-     */
-    private int calculateFamilyCapacity(Family family) {
-        // Base capacity + family size multiplier + priority bonus
-        double priorityMultiplier = family.getPriorityScore() / 10.0; // Normalize to 0-1
-        int capacity = (int) (baseCapacityPerFamily + (family.getSize() * 2) + (priorityMultiplier * 5));
-        return Math.max(capacity, 5); // Minimum capacity of 5
-    }
-    
-    /**
-     * Modified 0/1 Knapsack algorithm for supply allocation
-     */
-    private Map<String, Integer> knapsackAllocation(List<Supply> supplies, int capacity, Family family) {
-        Map<String, Integer> allocation = new HashMap<>();
-        
-        // Sort supplies by value-to-weight ratio (Greedy approach within Knapsack)
-        supplies.sort((s1, s2) -> Double.compare(s2.getValueWeightRatio(), s1.getValueWeightRatio()));
-        
-        int remainingCapacity = capacity;
-        
-        // Priority allocation based on family urgency
-        if (family.getUrgencyScore() >= 8) {
-            // High urgency: prioritize medicine and water
-            remainingCapacity = prioritizedAllocation(supplies, allocation, remainingCapacity, 
-                    Arrays.asList("Medicine Kit", "Water Bottle", "First Aid"));
-        }
-        
-        // Standard knapsack allocation for remaining capacity
-        for (Supply supply : supplies) {
-            if (remainingCapacity <= 0) break;
-            
-            String name = supply.getName();
-            int maxUnits = Math.min(supply.getQuantity(), remainingCapacity / Math.max(1, supply.getWeight()));
-            
-            if (maxUnits > 0) {
-                // Calculate optimal units based on family size and remaining capacity
-                int optimalUnits = calculateOptimalUnits(supply, family, maxUnits, remainingCapacity);
-                
-                if (optimalUnits > 0) {
-                    allocation.put(name, optimalUnits);
-                    remainingCapacity -= optimalUnits * supply.getWeight();
-                }
-            }
-        }
-        
-        return allocation;
-    }
-    
-    /**
-     * Prioritized allocation for high-urgency families
-     */
-    private int prioritizedAllocation(List<Supply> supplies, Map<String, Integer> allocation, 
-                                    int capacity, List<String> prioritySupplies) {
-        for (String priorityName : prioritySupplies) {
-            Supply supply = supplies.stream()
-                    .filter(s -> s.getName().equals(priorityName))
-                    .findFirst()
-                    .orElse(null);
-            
-            if (supply != null && capacity > 0) {
-                int maxUnits = Math.min(supply.getQuantity(), capacity / Math.max(1, supply.getWeight()));
-                if (maxUnits > 0) {
-                    int units = Math.min(maxUnits, 3); // Limit priority allocation
-                    allocation.put(priorityName, units);
-                    capacity -= units * supply.getWeight();
-                }
-            }
-        }
-        return capacity;
-    }
-    
-    /**
-     * Calculate optimal units for a supply based on family characteristics
-     */
-    private int calculateOptimalUnits(Supply supply, Family family, int maxUnits, int remainingCapacity) {
-        // Base allocation
-        int baseUnits = Math.max(1, family.getSize() / 2);
-        
-        // Adjust based on supply type
-        switch (supply.getName()) {
-            case "Water Bottle":
-                baseUnits = family.getSize(); // 1 per person minimum
-                break;
-            case "Food Ration":
-                baseUnits = Math.max(1, family.getSize() / 2); // 1 per 2 people
-                break;
-            case "Medicine Kit":
-                baseUnits = family.getUrgencyScore() >= 7 ? 2 : 1;
-                break;
-            case "Blanket":
-                baseUnits = Math.max(1, family.getSize() / 3); // 1 per 3 people
-                break;
-        }
-        
-        // Ensure within constraints
-        return Math.min(baseUnits, Math.min(maxUnits, remainingCapacity / Math.max(1, supply.getWeight())));
-    }
-    
-    /**
-     * Rebalance allocations when inventory or families change
-     */
-    public List<AllocationResult> rebalanceAllocations() {
-        System.out.println("=== REBALANCING ALLOCATIONS ===");
-        
-        // Restore supplies from previous allocations
-        restoreSuppliesFromAllocations();
-        
-        // Re-run allocation
-        return allocateSupplies();
-    }
-    
-    /**
-     * Restore supplies from current allocations back to inventory
-     */
-    private void restoreSuppliesFromAllocations() {
-        for (AllocationResult result : allocationResults) {
-            for (Map.Entry<String, Integer> entry : result.getAllocatedSupplies().entrySet()) {
-                Supply supply = inventory.getSupply(entry.getKey());
-                if (supply != null) {
-                    supply.addQuantity(entry.getValue());
-                }
-            }
-        }
-    }
-    
-    // Getters and Setters
-    public List<Family> getFamilies() { return new ArrayList<>(families); }
-    public Inventory getInventory() { return inventory; }
-    public List<AllocationResult> getAllocationResults() { return new ArrayList<>(allocationResults); }
-    
-    public void addFamily(Family family) {
-        if (family != null && !families.contains(family)) {
-            families.add(family);
-        }
-    }
-    
-    public boolean removeFamily(String familyId) {
-        return families.removeIf(family -> family.getFamilyId().equals(familyId));
-    }
-    
-    public void setInventory(Inventory inventory) {
-        this.inventory = inventory;
-    }
-    
-    public void updateFamilyStatus(String familyId, boolean active) {
-        families.stream()
-                .filter(family -> family.getFamilyId().equals(familyId))
-                .findFirst()
-                .ifPresent(family -> family.setActive(active));
-    }
+import java.util.*;
+
+/**
+ * Core allocation engine using Greedy and Knapsack algorithms
+ */
+public class SupplyAllocator {
+    /**
+     * How each family's share is packed into its capacity
+     */
+    public enum KnapsackMode {
+        /** Exact bounded knapsack over the family's needs */
+        DYNAMIC_PROGRAMMING,
+        /** Original value/weight ratio greedy pass */
+        GREEDY_RATIO
+    }
+    
+    private static final int[] URGENT_PRIORITY_SUPPLIES = {
+            SupplyTypeRegistry.MEDICINE_KIT, SupplyTypeRegistry.WATER_BOTTLE, SupplyTypeRegistry.FIRST_AID};
+    
+    private static final String NOTHING_TO_ALLOCATE = "No families to serve or no supplies available.";
+    
+    // Per-thread units-per-supply-type buffer for the family being allocated
+    private static final ThreadLocal<int[]> ALLOCATION_SCRATCH = ThreadLocal.withInitial(() -> new int[16]);
+    
+    private FamilyRegistry families;
+    private Inventory inventory;
+    private List<AllocationResult> allocationResults;
+    private AllocationMatrix matrix = new AllocationMatrix(16); // rows behind the current results
+    private int baseCapacityPerFamily;
+    private List<AllocationListener> listeners;
+    private ConsoleAllocationListener consoleListener;
+    private KnapsackMode knapsackMode = KnapsackMode.DYNAMIC_PROGRAMMING;
+    private AllocationStrategy strategy = new SequentialAllocationStrategy();
+    
+    // State of the last run, used by rebalanceIncremental
+    private List<Family> lastOrder = new ArrayList<>();
+    private int[] stockAfterRun = new int[0]; // indexed by supply type ID
+    
+    public SupplyAllocator(int baseCapacityPerFamily) {
+        this.families = new FamilyRegistry();
+        this.inventory = new Inventory(1000); // Default capacity
+        this.allocationResults = new ArrayList<>();
+        this.baseCapacityPerFamily = baseCapacityPerFamily;
+        this.listeners = new ArrayList<>();
+        setQuiet(false);
+    }
+    
+    public SupplyAllocator(List<Family> families, Inventory inventory, int baseCapacityPerFamily) {
+        this.families = new FamilyRegistry(families);
+        this.inventory = inventory;
+        this.allocationResults = new ArrayList<>();
+        this.baseCapacityPerFamily = baseCapacityPerFamily;
+        this.listeners = new ArrayList<>();
+        setQuiet(false);
+    }
+    
+    /**
+     * Main allocation method using Greedy + Knapsack approach
+     */
+    public List<AllocationResult> allocateSupplies() {
+        try {
+            return allocateActiveFamilies();
+        } catch (RuntimeException | Error e) {
+            fireRunAborted(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * One run over the registered active families; listeners hear of failures
+     * from the public entry points
+     */
+    private List<AllocationResult> allocateActiveFamilies() {
+        allocationResults.clear();
+        families.drainChangedIds();
+        matrix = new AllocationMatrix(families.activeCount());
+        
+        if (families.isEmpty() || !inventory.hasSupplies()) {
+            recordRunState(new ArrayList<>());
+            fireRunSkipped(NOTHING_TO_ALLOCATE);
+            fireRunFinished();
+            return allocationResults;
+        }
+        
+        // Step 1: Sort families by priority (Greedy approach)
+        List<Family> sortedFamilies = prioritizedActiveFamilies();
+        
+        firePhaseStarted("ALLOCATION PROCESS", sortedFamilies);
+        
+        // Step 2: Allocate using the configured strategy
+        allocationResults.addAll(strategy.allocate(this, sortedFamilies));
+        
+        recordRunState(sortedFamilies);
+        fireRunFinished();
+        return allocationResults;
+    }
+    
+    /**
+     * Allocate to the active rows of a family table, highest priority first.
+     * The table is used instead of the registered families and is not added
+     * to them, so an incremental rebalance after a table run falls back to a
+     * full rebalance.
+     */
+    public List<AllocationResult> allocateSupplies(FamilyTable table) {
+        try {
+            allocationResults.clear();
+            int[] rows = table.activeRowsByPriority();
+            
+            matrix = new AllocationMatrix(rows.length);
+            if (rows.length > 0 && inventory.hasSupplies()) {
+                firePhaseStarted("ALLOCATION PROCESS", table.asFamilyList(rows));
+                allocationResults.addAll(strategy.allocate(this, table, rows));
+            } else {
+                fireRunSkipped(NOTHING_TO_ALLOCATE);
+            }
+            
+            recordRunState(new ArrayList<>());
+            fireRunFinished();
+            return allocationResults;
+        } catch (RuntimeException | Error e) {
+            fireRunAborted(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Active families in allocation order, highest priority first.
+     * The registry keeps this order up to date, so no sort is needed.
+     */
+    private List<Family> prioritizedActiveFamilies() {
+        return new ArrayList<>(families.getActive());
+    }
+    
+    /**
+     * Remember the order and remaining stock of a finished run
+     */
+    private void recordRunState(List<Family> order) {
+        lastOrder = order;
+        stockAfterRun = new int[SupplyTypeRegistry.size()];
+        for (Supply supply : inventory.getAllSupplies()) {
+            stockAfterRun[supply.getTypeId()] = supply.getQuantity();
+        }
+    }
+    
+    /**
+     * Allocate supplies to a specific family using the Knapsack approach
+     */
+    AllocationResult allocateToFamily(Family family) {
+        return allocateToFamily(family, matrix);
+    }
+    
+    /**
+     * Allocate to a family, storing the result in the given matrix
+     */
+    AllocationResult allocateToFamily(Family family, AllocationMatrix target) {
+        AllocationResult result = computeAllocation(inventory, target, family);
+        notifyFamilyResult(family, result);
+        return result;
+    }
+    
+    /**
+     * Allocate to one table row, reading its columns directly.
+     * A Family view of the row is only created when there are listeners.
+     */
+    AllocationResult allocateToRow(FamilyTable table, int row) {
+        AllocationResult result = computeAllocation(inventory, matrix, table.getFamilyId(row), table.getSize(row),
+                table.getUrgencyScore(row), table.getPriorityScore(row));
+        if (!listeners.isEmpty()) {
+            notifyFamilyResult(table.view(row), result);
+        }
+        return result;
+    }
+    
+    /**
+     * Plan and claim a family's supplies without notifying listeners.
+     * Stock is taken with Inventory.claim, so on a ConcurrentInventory this
+     * is safe to call from several threads at once.
+     */
+    AllocationResult computeAllocation(Family family) {
+        return computeAllocation(inventory, matrix, family);
+    }
+    
+    /**
+     * Same as computeAllocation(Family), drawing from another inventory
+     * (used by strategies that source from several depots)
+     */
+    AllocationResult computeAllocation(Inventory source, Family family) {
+        return computeAllocation(source, matrix, family);
+    }
+    
+    private AllocationResult computeAllocation(Inventory source, AllocationMatrix target, Family family) {
+        return computeAllocation(source, target, family.getFamilyId(), family.getSize(), family.getUrgencyScore(),
+                family.getPriorityScore());
+    }
+    
+    /**
+     * Same as computeAllocation(Family), from the family's attributes alone
+     */
+    private AllocationResult computeAllocation(Inventory source, AllocationMatrix target, String familyId, int size,
+                                               int urgency, double priority) {
+        AllocationResult result = target.newResult(familyId);
+        
+        // In-stock supplies in ratio order, maintained by the inventory.
+        // Once everything is gone the rest of the run skips the knapsack.
+        List<Supply> availableSupplies = source.getAvailableByRatio();
+        
+        if (availableSupplies.isEmpty()) {
+            return result;
+        }
+        
+        // Calculate family capacity based on size and priority
+        int familyCapacity = calculateFamilyCapacity(size, priority);
+        
+        // Apply Knapsack algorithm (units indexed by supply type ID)
+        int[] allocation = allocationScratch();
+        knapsackAllocation(availableSupplies, familyCapacity, size, urgency, allocation);
+        
+        // Update inventory and result
+        LotDraws draws = new LotDraws();
+        for (Supply supply : availableSupplies) {
+            int typeId = supply.getTypeId();
+            int quantity = allocation[typeId];
+            allocation[typeId] = 0;
+            
+            if (quantity > 0) {
+                int claimed = source.claim(supply, quantity, draws);
+                if (claimed > 0) {
+                    result.addAllocatedSupply(typeId, claimed, supply.getValue(), supply.getWeight());
+                }
+            }
+        }
+        result.setLotDraws(draws);
+        
+        result.calculateAllocationScore(priority);
+        return result;
+    }
+    
+    /**
+     * Empty result row in the current run's matrix (used by strategies)
+     */
+    AllocationResult newResult(String familyId) {
+        return matrix.newResult(familyId);
+    }
+    
+    /**
+     * Report a finished family result to listeners (used by strategies)
+     */
+    void notifyFamilyResult(Family family, AllocationResult result) {
+        if (result.hasAllocations()) {
+            fireFamilyAllocated(family, result);
+        } else {
+            fireFamilySkipped(family, "No allocation possible");
+        }
+    }
+    
+    /**
+     * Calculate capacity allocation for a family based on size and priority
+     */
+    int calculateFamilyCapacity(Family family) {
+        return calculateFamilyCapacity(family.getSize(), family.getPriorityScore());
+    }
+    
+    private int calculateFamilyCapacity(int size, double priority) {
+        // Base capacity + family size multiplier + priority bonus
+        double priorityMultiplier = priority / 10.0; // Normalize to 0-1
+        int capacity = (int) (baseCapacityPerFamily + (size * 2) + (priorityMultiplier * 5));
+        return Math.max(capacity, 5); // Minimum capacity of 5
+    }
+    
+    /**
+     * Zeroed per-thread buffer with one slot per registered supply type
+     */
+    private static int[] allocationScratch() {
+        int[] scratch = ALLOCATION_SCRATCH.get();
+        if (scratch.length < SupplyTypeRegistry.size()) {
+            scratch = new int[Math.max(SupplyTypeRegistry.size(), scratch.length * 2)];
+            ALLOCATION_SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+    
+    /**
+     * Knapsack allocation of supplies for one family, using the configured mode
+     * @param allocation Output: units per supply type ID
+     */
+    private void knapsackAllocation(List<Supply> supplies, int capacity, int size, int urgency, int[] allocation) {
+        if (knapsackMode == KnapsackMode.GREEDY_RATIO) {
+            greedyAllocation(supplies, capacity, size, urgency, allocation);
+            return;
+        }
+        
+        int remainingCapacity = capacity;
+        
+        // Priority allocation based on family urgency
+        if (urgency >= 8) {
+            remainingCapacity = prioritizedAllocation(supplies, allocation, remainingCapacity, 
+                    URGENT_PRIORITY_SUPPLIES);
+        }
+        
+        // Bounded knapsack: each supply limited by stock and by what the family needs
+        BoundedKnapsackSolver solver = BoundedKnapsackSolver.forCurrentThread();
+        solver.reset();
+        for (Supply supply : supplies) {
+            int available = supply.getQuantity() - allocation[supply.getTypeId()];
+            int bound = Math.min(available, calculateBaseUnits(supply, size, urgency));
+            solver.addItem(supply.getValue(), supply.getWeight(), bound);
+        }
+        solver.solve(remainingCapacity);
+        
+        for (int i = 0; i < supplies.size(); i++) {
+            allocation[supplies.get(i).getTypeId()] += solver.getTaken(i);
+        }
+    }
+    
+    /**
+     * Original ratio-sorted greedy pass, kept for comparison with the DP solver
+     */
+    private void greedyAllocation(List<Supply> supplies, int capacity, int size, int urgency, int[] allocation) {
+        // Supplies arrive sorted by value-to-weight ratio (Greedy approach within Knapsack)
+        int remainingCapacity = capacity;
+        
+        // Priority allocation based on family urgency
+        if (urgency >= 8) {
+            // High urgency: prioritize medicine and water
+            remainingCapacity = prioritizedAllocation(supplies, allocation, remainingCapacity, 
+                    URGENT_PRIORITY_SUPPLIES);
+        }
+        
+        // Standard knapsack allocation for remaining capacity
+        for (Supply supply : supplies) {
+            if (remainingCapacity <= 0) break;
+            
+            int maxUnits = Math.min(supply.getQuantity(), remainingCapacity / Math.max(1, supply.getWeight()));
+            
+            if (maxUnits > 0) {
+                // Calculate optimal units based on family size and remaining capacity
+                int optimalUnits = calculateOptimalUnits(supply, size, urgency, maxUnits, remainingCapacity);
+                
+                if (optimalUnits > 0) {
+                    allocation[supply.getTypeId()] = optimalUnits;
+                    remainingCapacity -= optimalUnits * supply.getWeight();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Prioritized allocation for high-urgency families
+     */
+    private int prioritizedAllocation(List<Supply> supplies, int[] allocation, 
+                                    int capacity, int[] prioritySupplies) {
+        for (int typeId : prioritySupplies) {
+            Supply supply = findSupply(supplies, typeId);
+            
+            if (supply != null && supply.isAvailable() && capacity > 0) {
+                int maxUnits = Math.min(supply.getQuantity(), capacity / Math.max(1, supply.getWeight()));
+                if (maxUnits > 0) {
+                    int units = Math.min(maxUnits, 3); // Limit priority allocation
+                    allocation[typeId] = units;
+                    capacity -= units * supply.getWeight();
+                }
+            }
+        }
+        return capacity;
+    }
+    
+    /**
+     * Supply of a type among those being planned (the inventory drawn from may
+     * not be the allocator's own)
+     */
+    private static Supply findSupply(List<Supply> supplies, int typeId) {
+        for (Supply supply : supplies) {
+            if (supply.getTypeId() == typeId) {
+                return supply;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Calculate optimal units for a supply based on family characteristics
+     */
+    private int calculateOptimalUnits(Supply supply, int size, int urgency, int maxUnits, int remainingCapacity) {
+        int baseUnits = calculateBaseUnits(supply, size, urgency);
+        
+        // Ensure within constraints
+        return Math.min(baseUnits, Math.min(maxUnits, remainingCapacity / Math.max(1, supply.getWeight())));
+    }
+    
+    /**
+     * Total units of a supply a family may receive in one run: the base need
+     * plus the priority picks high-urgency families get first
+     */
+    int calculateNeed(Supply supply, Family family) {
+        int size = family.getSize();
+        int urgency = family.getUrgencyScore();
+        int need = calculateBaseUnits(supply, size, urgency);
+        if (urgency >= 8) {
+            for (int typeId : URGENT_PRIORITY_SUPPLIES) {
+                if (typeId == supply.getTypeId()) {
+                    need += 3;
+                }
+            }
+        }
+        return need;
+    }
+    
+    /**
+     * Units of a supply a family needs, before stock and capacity limits
+     */
+    private int calculateBaseUnits(Supply supply, int size, int urgency) {
+        // Base allocation
+        int baseUnits = Math.max(1, size / 2);
+        
+        // Adjust based on supply type
+        switch (supply.getTypeId()) {
+            case SupplyTypeRegistry.WATER_BOTTLE:
+                baseUnits = size; // 1 per person minimum
+                break;
+            case SupplyTypeRegistry.FOOD_RATION:
+                baseUnits = Math.max(1, size / 2); // 1 per 2 people
+                break;
+            case SupplyTypeRegistry.MEDICINE_KIT:
+                baseUnits = urgency >= 7 ? 2 : 1;
+                break;
+            case SupplyTypeRegistry.BLANKET:
+                baseUnits = Math.max(1, size / 3); // 1 per 3 people
+                break;
+        }
+        
+        return baseUnits;
+    }
+    
+    /**
+     * Rebalance allocations when inventory or families change
+     */
+    public List<AllocationResult> rebalanceAllocations() {
+        try {
+            firePhaseStarted("REBALANCING ALLOCATIONS", Collections.emptyList());
+            
+            // Restore supplies from previous allocations
+            restoreSuppliesFromAllocations();
+            
+            // Re-run allocation
+            return allocateActiveFamilies();
+        } catch (RuntimeException | Error e) {
+            fireRunAborted(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Rebalance only the part of the priority order a change can affect.
+     * 
+     * The recomputed suffix starts at the earliest of: the old or new position
+     * of any family added, removed or changed since the last run (the
+     * registry records these as they happen), and the first family whose
+     * allocation depended on a supply whose stock changed since the last run.
+     * Families before that point keep their results and their stock.
+     * Global strategies that cannot recompute a suffix fall back to a full
+     * rebalance.
+     * 
+     * @param changedFamilyIds Extra families to treat as changed (may be null)
+     * @return The results that changed and the families that dropped out
+     */
+    public AllocationDelta rebalanceIncremental(Collection<String> changedFamilyIds) {
+        try {
+            return rebalanceSuffix(changedFamilyIds);
+        } catch (RuntimeException | Error e) {
+            fireRunAborted(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Body of rebalanceIncremental
+     */
+    private AllocationDelta rebalanceSuffix(Collection<String> changedFamilyIds) {
+        List<AllocationResult> oldResults = new ArrayList<>(allocationResults);
+        List<Family> oldOrder = lastOrder;
+        
+        Set<String> changed = families.drainChangedIds();
+        if (changedFamilyIds != null) {
+            changed.addAll(changedFamilyIds);
+        }
+        
+        List<Family> newOrder = prioritizedActiveFamilies();
+        int start = 0;
+        if (strategy.supportsSuffixRecompute()) {
+            start = findFirstAffectedPosition(oldOrder, oldResults, newOrder, changed);
+        }
+        
+        // Return the stock of the suffix that is about to be recomputed
+        restoreSuppliesFromAllocations(oldResults.subList(start, oldResults.size()));
+        
+        // The kept prefix moves into the new run's matrix; old results stay readable
+        matrix = new AllocationMatrix(newOrder.size());
+        List<AllocationResult> kept = new ArrayList<>(start);
+        for (AllocationResult result : oldResults.subList(0, start)) {
+            kept.add(matrix.copyOf(result));
+        }
+        List<Family> suffix = newOrder.subList(start, newOrder.size());
+        
+        firePhaseStarted("INCREMENTAL REBALANCE", suffix);
+        List<AllocationResult> recomputed = suffix.isEmpty() || !inventory.hasSupplies()
+                ? emptyResults(suffix) : strategy.allocate(this, new ArrayList<>(suffix));
+        
+        allocationResults.clear();
+        allocationResults.addAll(kept);
+        allocationResults.addAll(recomputed);
+        recordRunState(newOrder);
+        fireRunFinished();
+        
+        return AllocationDelta.between(oldResults.subList(start, oldResults.size()), recomputed, start);
+    }
+    
+    /**
+     * Earliest position in the priority order whose result may change
+     */
+    private int findFirstAffectedPosition(List<Family> oldOrder, List<AllocationResult> oldResults,
+                                          List<Family> newOrder, Set<String> changed) {
+        int start = Math.min(oldOrder.size(), oldResults.size());
+        
+        // Changed families, at their old and new positions
+        if (!changed.isEmpty()) {
+            for (int i = 0; i < start; i++) {
+                if (changed.contains(oldOrder.get(i).getFamilyId())) {
+                    start = i;
+                    break;
+                }
+            }
+            for (int i = 0; i < Math.min(start, newOrder.size()); i++) {
+                if (changed.contains(newOrder.get(i).getFamilyId())) {
+                    start = i;
+                    break;
+                }
+            }
+        }
+        
+        // Supplies whose stock moved since the last run
+        for (Supply supply : inventory.getAllSupplies()) {
+            int delta = supply.getQuantity() - previousStock(supply.getTypeId());
+            if (delta != 0) {
+                start = Math.min(start, firstDependentPosition(supply, delta, oldOrder, oldResults, start));
+            }
+        }
+        
+        // Safety net: the kept prefix must be identical in both orders
+        for (int i = 0; i < start; i++) {
+            if (i >= newOrder.size() || oldOrder.get(i) != newOrder.get(i)) {
+                return i;
+            }
+        }
+        return start;
+    }
+    
+    /**
+     * First family (before limit) whose allocation could depend on the stock of
+     * a supply: it took some, or the stock it saw, before or after the change,
+     * was below the most it could carry.
+     */
+    private int firstDependentPosition(Supply supply, int delta, List<Family> oldOrder,
+                                       List<AllocationResult> oldResults, int limit) {
+        int typeId = supply.getTypeId();
+        int available = previousStock(typeId);
+        for (AllocationResult result : oldResults) {
+            available += result.getAllocatedQuantity(typeId);
+        }
+        
+        for (int i = 0; i < limit; i++) {
+            int taken = oldResults.get(i).getAllocatedQuantity(typeId);
+            int carryable = calculateFamilyCapacity(oldOrder.get(i)) / Math.max(1, supply.getWeight());
+            if (taken > 0 || available < carryable || available + delta < carryable) {
+                return i;
+            }
+            available -= taken;
+        }
+        return limit;
+    }
+    
+    private int previousStock(int typeId) {
+        return typeId < stockAfterRun.length ? stockAfterRun[typeId] : 0;
+    }
+    
+    private List<AllocationResult> emptyResults(List<Family> order) {
+        List<AllocationResult> results = new ArrayList<>(order.size());
+        for (Family family : order) {
+            AllocationResult result = matrix.newResult(family.getFamilyId());
+            notifyFamilyResult(family, result);
+            results.add(result);
+        }
+        return results;
+    }
+    
+    /**
+     * Restore supplies from current allocations back to inventory
+     */
+    private void restoreSuppliesFromAllocations() {
+        restoreSuppliesFromAllocations(allocationResults);
+    }
+    
+    private void restoreSuppliesFromAllocations(List<AllocationResult> results) {
+        strategy.returnStock(this, results);
+    }
+    
+    /**
+     * Restock the allocator's inventory with everything the results hold
+     */
+    void restockResults(List<AllocationResult> results) {
+        for (AllocationResult result : results) {
+            LotDraws draws = result.getLotDraws();
+            for (int typeId = 0; typeId < SupplyTypeRegistry.size(); typeId++) {
+                int quantity = result.getAllocatedQuantity(typeId);
+                if (quantity > 0) {
+                    inventory.restock(inventory.getSupply(typeId), quantity, draws);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Register a listener for allocation events
+     */
+    public void addAllocationListener(AllocationListener listener) {
+        if (listener != null && !listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+    
+    /**
+     * Unregister a listener
+     */
+    public boolean removeAllocationListener(AllocationListener listener) {
+        return listeners.remove(listener);
+    }
+    
+    /**
+     * Register a listener for changes to the registered families
+     */
+    public void addFamilyListener(FamilyListener listener) {
+        families.addListener(listener);
+    }
+    
+    public boolean removeFamilyListener(FamilyListener listener) {
+        return families.removeListener(listener);
+    }
+    
+    /**
+     * Install results recovered from persisted state as the last run's results.
+     * No order is known for them, so the next incremental rebalance is a full one.
+     */
+    void restoreResults(List<AllocationResult> results) {
+        allocationResults.clear();
+        allocationResults.addAll(results);
+        recordRunState(new ArrayList<>());
+    }
+    
+    /**
+     * Headless mode: when quiet, the built-in console listener is detached and
+     * runs produce no output (other registered listeners still receive events)
+     */
+    public void setQuiet(boolean quiet) {
+        if (quiet) {
+            if (consoleListener != null) {
+                listeners.remove(consoleListener);
+                consoleListener = null;
+            }
+        } else if (consoleListener == null) {
+            consoleListener = new ConsoleAllocationListener();
+            listeners.add(0, consoleListener);
+        }
+    }
+    
+    public boolean isQuiet() {
+        return consoleListener == null;
+    }
+    
+    private void firePhaseStarted(String phase, List<Family> order) {
+        if (listeners.isEmpty()) return;
+        List<Family> view = Collections.unmodifiableList(order);
+        for (AllocationListener listener : listeners) {
+            listener.onPhaseStarted(phase, view);
+        }
+    }
+    
+    private void fireRunSkipped(String reason) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onRunSkipped(reason);
+        }
+    }
+    
+    private void fireFamilyAllocated(Family family, AllocationResult result) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFamilyAllocated(family, result);
+        }
+    }
+    
+    private void fireFamilySkipped(Family family, String reason) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onFamilySkipped(family, reason);
+        }
+    }
+    
+    private void fireRunFinished() {
+        if (listeners.isEmpty()) return;
+        List<AllocationResult> view = Collections.unmodifiableList(allocationResults);
+        for (AllocationListener listener : listeners) {
+            listener.onRunFinished(view);
+        }
+    }
+    
+    /**
+     * Tell every listener the run failed; their own failures are added to
+     * the cause as suppressed exceptions
+     */
+    private void fireRunAborted(Throwable cause) {
+        for (AllocationListener listener : listeners) {
+            try {
+                listener.onRunAborted(cause);
+            } catch (RuntimeException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+    
+    // Getters and Setters
+    public List<Family> getFamilies() { return new ArrayList<>(families.getAll()); }
+    public Family getFamily(String familyId) { return families.get(familyId); }
+    public boolean hasFamily(String familyId) { return families.contains(familyId); }
+    public int getFamilyCount() { return families.size(); }
+    public int getActiveFamilyCount() { return families.activeCount(); }
+    public Inventory getInventory() { return inventory; }
+    public List<AllocationResult> getAllocationResults() { return new ArrayList<>(allocationResults); }
+    public AllocationMatrix getAllocationMatrix() { return matrix; }
+    public int getBaseCapacityPerFamily() { return baseCapacityPerFamily; }
+    
+    public void addFamily(Family family) {
+        families.add(family);
+    }
+    
+    /**
+     * Register many families at once
+     * @return Number of families added (duplicates are skipped)
+     */
+    public int addFamilies(Collection<Family> newFamilies) {
+        return families.addAll(newFamilies);
+    }
+    
+    public boolean removeFamily(String familyId) {
+        return families.remove(familyId) != null;
+    }
+    
+    /**
+     * Remove many families at once
+     * @return Number of families removed
+     */
+    public int removeFamilies(Collection<String> familyIds) {
+        return families.removeAll(familyIds);
+    }
+    
+    public KnapsackMode getKnapsackMode() { return knapsackMode; }
+    
+    public void setKnapsackMode(KnapsackMode knapsackMode) {
+        this.knapsackMode = knapsackMode;
+    }
+    
+    public AllocationStrategy getStrategy() { return strategy; }
+    
+    public void setStrategy(AllocationStrategy strategy) {
+        if (strategy != null) {
+            this.strategy = strategy;
+        }
+    }
+    
+    public void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+    
+    public void updateFamilyStatus(String familyId, boolean active) {
+        families.updateStatus(familyId, active);
+    }
+    
+    /**
+     * Apply many status changes at once
+     * @return Number of families found and updated
+     */
+    public int updateFamilyStatuses(Map<String, Boolean> statuses) {
+        return families.updateStatuses(statuses);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+import java.time.LocalDate;
+
+/**
+ * A dated delivery of one supply: units received together that expire on the
+ * same day. Lots are owned by a Supply, which hands out the earliest expiring
+ * units first.
+ */
+public final class SupplyLot implements Comparable<SupplyLot> {
+    private final String lotId;
+    private final LocalDate expiresOn;
+    private final long expiryDay; // heap key: days since the epoch
+    private final long sequence; // receipt order, breaks ties between lots of the same day
+    private final int received;
+    private int remaining;
+    
+    SupplyLot(String lotId, int quantity, LocalDate expiresOn, long sequence) {
+        this.lotId = lotId;
+        this.expiresOn = expiresOn;
+        this.expiryDay = expiresOn.toEpochDay();
+        this.sequence = sequence;
+        this.received = quantity;
+        this.remaining = quantity;
+    }
+    
+    // Getters
+    public String getLotId() { return lotId; }
+    public LocalDate getExpiresOn() { return expiresOn; }
+    public int getReceived() { return received; }
+    public int getRemaining() { return remaining; }
+    long getExpiryDay() { return expiryDay; }
+    
+    /**
+     * Take units from this lot (the owning supply's lock is held)
+     * @return Units actually taken
+     */
+    int take(int units) {
+        int taken = Math.min(units, remaining);
+        remaining -= taken;
+        return taken;
+    }
+    
+    /**
+     * Put returned units back into this lot (the owning supply's lock is held)
+     */
+    void giveBack(int units) {
+        remaining += units;
+    }
+    
+    /**
+     * Usable on the given day (lots are good through their expiry date)
+     */
+    public boolean isExpired(LocalDate today) {
+        return expiresOn.isBefore(today);
+    }
+    
+    @Override
+    public int compareTo(SupplyLot other) {
+        int byDay = Long.compare(expiryDay, other.expiryDay);
+        return byDay != 0 ? byDay : Long.compare(sequence, other.sequence);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Lot[%s: %d/%d, expires %s]", lotId, remaining, received, expiresOn);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,308 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Bulk stock intake from donation shipping manifests.
+ *
+ * Lines are Supply,Quantity with optional Weight,Value,Unit columns; the
+ * extra columns are needed only for supplies the inventory does not carry yet
+ * and are ignored for known ones. Names may be quoted. A first line whose
+ * quantity field is not a number is taken as the header. Bad lines are
+ * skipped and reported with their line number.
+ *
+ * The manifest is streamed line by line and line items are summed per supply
+ * as they are read, so memory grows with the number of distinct supplies, not
+ * with the size of the manifest. The sums are applied with one
+ * Inventory.mergeSupplies call, which touches each supply once however many
+ * line items it had.
+ */
+public class SupplyManifestImporter {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private static final int READ_BUFFER = 1 << 16;
+    
+    private SupplyManifestImporter() {
+    }
+    
+    /**
+     * Read a manifest file and merge it into the inventory
+     */
+    public static Report importFile(Path path, Inventory inventory) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), READ_BUFFER)) {
+            return importFrom(reader, inventory);
+        }
+    }
+    
+    /**
+     * Read a manifest and merge it into the inventory. Supplies the inventory
+     * does not carry are only added if the manifest defines them.
+     */
+    public static Report importFrom(Reader reader, Inventory inventory) throws IOException {
+        Report report = read(reader);
+        List<Supply> batch = new ArrayList<>(report.tallies.size());
+        for (Iterator<Tally> it = report.tallies.values().iterator(); it.hasNext(); ) {
+            Tally tally = it.next();
+            if (inventory.getSupply(tally.name) != null || tally.unit != null) {
+                batch.add(new Supply(tally.name, Math.max(tally.weight, 1), Math.max(tally.value, 0),
+                        (int) tally.quantity, tally.unit));
+                report.unitsMerged += tally.quantity;
+            } else {
+                report.reject(tally.firstLine, "Unknown supply '" + tally.name + "' needs Weight,Value,Unit");
+                it.remove();
+            }
+        }
+        report.newSupplies = inventory.mergeSupplies(batch);
+        return report;
+    }
+    
+    /**
+     * Read and sum a manifest without touching any inventory
+     */
+    public static Report read(Reader reader) throws IOException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader
+                : new BufferedReader(reader, READ_BUFFER);
+        Report report = new Report();
+        String[] fields = new String[5];
+        long lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            int count = split(line, fields);
+            if (lineNumber == 1 && count > 1 && parseLong(fields[1]) == Long.MIN_VALUE) {
+                continue; // header
+            }
+            int quantity = count > 1 ? parseInt(fields[1]) : -1;
+            report.linesRead++;
+            if (count < 2 || fields[0].isEmpty()) {
+                report.reject(lineNumber, "Expected Supply,Quantity[,Weight,Value,Unit]");
+            } else if (quantity < 1) {
+                report.reject(lineNumber, "Quantity must be a positive whole number: " + fields[1]);
+            } else {
+                report.add(lineNumber, fields, count, quantity);
+            }
+        }
+        return report;
+    }
+    
+    /**
+     * Split a line on commas into trimmed fields; double quotes protect
+     * commas and a doubled quote inside quotes is a literal quote
+     * @return Number of fields found (only the first fields.length are kept)
+     */
+    private static int split(String line, String[] fields) {
+        int count = 0;
+        int pos = 0;
+        int length = line.length();
+        while (true) {
+            while (pos < length && line.charAt(pos) == ' ') {
+                pos++;
+            }
+            String field;
+            if (pos < length && line.charAt(pos) == '"') {
+                StringBuilder quoted = new StringBuilder();
+                pos++;
+                while (pos < length) {
+                    char c = line.charAt(pos++);
+                    if (c != '"') {
+                        quoted.append(c);
+                    } else if (pos < length && line.charAt(pos) == '"') {
+                        quoted.append('"');
+                        pos++;
+                    } else {
+                        break;
+                    }
+                }
+                int comma = line.indexOf(',', pos);
+                pos = comma < 0 ? length : comma;
+                field = quoted.toString();
+            } else {
+                int comma = line.indexOf(',', pos);
+                int end = comma < 0 ? length : comma;
+                field = line.substring(pos, end).trim();
+                pos = end;
+            }
+            if (count < fields.length) {
+                fields[count] = field;
+            }
+            count++;
+            if (pos >= length) {
+                return count;
+            }
+            pos++; // past the comma
+        }
+    }
+    
+    /**
+     * Non-negative int, or -1 if the field is not one
+     */
+    private static int parseInt(String field) {
+        long value = parseLong(field);
+        return value >= 0 && value <= Integer.MAX_VALUE ? (int) value : -1;
+    }
+    
+    /**
+     * Whole number of at most 18 digits, or Long.MIN_VALUE if the field is not one
+     */
+    private static long parseLong(String field) {
+        int length = field.length();
+        int start = length > 0 && (field.charAt(0) == '-' || field.charAt(0) == '+') ? 1 : 0;
+        if (length == start || length - start > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = start; i < length; i++) {
+            char c = field.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return field.charAt(0) == '-' ? -value : value;
+    }
+    
+    /**
+     * Running total of one supply
+     */
+    private static final class Tally {
+        final String name;
+        final long firstLine;
+        long quantity;
+        int weight = -1;
+        int value = -1;
+        String unit; // null until a line defines the supply
+        long definedOn;
+        
+        Tally(String name, long firstLine) {
+            this.name = name;
+            this.firstLine = firstLine;
+        }
+    }
+    
+    /**
+     * Outcome of a read or import
+     */
+    public static final class Report {
+        private final Map<String, Tally> tallies = new LinkedHashMap<>();
+        private final List<LineError> errors = new ArrayList<>();
+        private long linesRead;
+        private long errorCount;
+        private long unitsMerged;
+        private int newSupplies = -1;
+        
+        /**
+         * Check a line item's definition and add it to its supply's total
+         */
+        private void add(long line, String[] fields, int count, int quantity) {
+            int weight = -1;
+            int value = -1;
+            String unit = null;
+            if (count >= 5) {
+                weight = parseInt(fields[2]);
+                value = parseInt(fields[3]);
+                unit = fields[4];
+                if (weight < 1 || value < 0 || unit.isEmpty()) {
+                    reject(line, "Weight must be at least 1, Value at least 0 and Unit given");
+                    return;
+                }
+            } else if (count > 2) {
+                reject(line, "Give all of Weight,Value,Unit or none of them");
+                return;
+            }
+            
+            Tally tally = tallies.get(fields[0]);
+            if (tally == null) {
+                tally = new Tally(fields[0], line);
+            } else if (tally.quantity + quantity > Integer.MAX_VALUE) {
+                reject(line, "Total quantity of '" + tally.name + "' exceeds " + Integer.MAX_VALUE);
+                return;
+            }
+            if (unit != null) {
+                if (tally.unit == null) {
+                    tally.weight = weight;
+                    tally.value = value;
+                    tally.unit = unit;
+                    tally.definedOn = line;
+                } else if (tally.weight != weight || tally.value != value || !tally.unit.equals(unit)) {
+                    reject(line, "Definition of '" + tally.name + "' differs from line " + tally.definedOn);
+                    return;
+                }
+            }
+            tally.quantity += quantity;
+            tallies.putIfAbsent(tally.name, tally);
+        }
+        
+        private void reject(long line, String message) {
+            errorCount++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new LineError(line, message));
+            }
+        }
+        
+        /**
+         * Summed quantity per supply, in order of first appearance
+         */
+        public Map<String, Integer> getQuantities() {
+            Map<String, Integer> quantities = new LinkedHashMap<>();
+            for (Tally tally : tallies.values()) {
+                quantities.put(tally.name, (int) tally.quantity);
+            }
+            return quantities;
+        }
+        
+        /**
+         * Rejected lines, at most MAX_REPORTED_ERRORS of them. Errors found
+         * while merging (unknown supplies) come after the reading errors.
+         */
+        public List<LineError> getErrors() { return Collections.unmodifiableList(errors); }
+        
+        /**
+         * Line items read (header and blank lines not counted)
+         */
+        public long getLinesRead() { return linesRead; }
+        public long getErrorCount() { return errorCount; }
+        public long getUnitsMerged() { return unitsMerged; }
+        
+        /**
+         * Supplies that were new to the inventory, -1 if the manifest was only read
+         */
+        public int getNewSupplies() { return newSupplies; }
+        
+        @Override
+        public String toString() {
+            return String.format("Read %d line items: %d supplies, %d rejected%s", linesRead, tallies.size(),
+                    errorCount, newSupplies < 0 ? ""
+                            : String.format(", %d units merged, %d new supplies", unitsMerged, newSupplies));
+        }
+    }
+    
+    /**
+     * A rejected manifest line
+     */
+    public static final class LineError {
+        private final long line;
+        private final String message;
+        
+        LineError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+        
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
\ No newline at end of file
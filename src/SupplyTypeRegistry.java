@@ -0,0 +1,78 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense integer IDs to supply names.
+ * IDs are handed out when a supply is added to an Inventory and are shared by
+ * every inventory, so allocation code can index plain arrays by supply type and
+ * only resolve names when printing or exporting. The default supplies are
+ * registered first and have fixed IDs.
+ */
+public final class SupplyTypeRegistry {
+    public static final int FOOD_RATION = 0;
+    public static final int WATER_BOTTLE = 1;
+    public static final int MEDICINE_KIT = 2;
+    public static final int BLANKET = 3;
+    public static final int FIRST_AID = 4;
+    
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static volatile String[] names = new String[16];
+    private static int count;
+    
+    static {
+        register("Food Ration");
+        register("Water Bottle");
+        register("Medicine Kit");
+        register("Blanket");
+        register("First Aid");
+    }
+    
+    private SupplyTypeRegistry() {}
+    
+    /**
+     * Get the ID of a supply name, assigning the next free ID if it is new
+     */
+    public static int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (SupplyTypeRegistry.class) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (count == current.length) {
+                current = Arrays.copyOf(current, count * 2);
+            }
+            current[count] = name;
+            names = current;
+            ids.put(name, count);
+            return count++;
+        }
+    }
+    
+    /**
+     * Get the ID of a known supply name
+     * @return ID, or -1 if the name was never registered
+     */
+    public static int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+    
+    /**
+     * Resolve an ID back to its supply name
+     */
+    public static String nameOf(int id) {
+        return names[id];
+    }
+    
+    /**
+     * Number of registered supply types (IDs run from 0 to size() - 1)
+     */
+    public static int size() {
+        return ids.size();
+    }
+}
\ No newline at end of file
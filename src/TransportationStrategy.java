@@ -0,0 +1,246 @@
+import java.util.*;
+
+/**
+ * Global allocation strategy that treats the whole run as one transportation
+ * (min-cost flow) problem: supply types are sources, families are sinks, and
+ * every unit of supply j sent to family i earns priority(i) * value(j).
+ * Family capacity, family need and stock bound the flow.
+ *
+ * The problem is solved through its dual: every supply type gets a shadow
+ * price, and prices are raised on over-demanded types until each family's
+ * best choice at those prices fits the stock. With only dozens of supply types
+ * against many families this converges in a few dozen cheap rounds instead of
+ * augmenting paths through a families x supplies graph. The final integral
+ * plan uses the bounded knapsack per family, rations any leftover conflict by
+ * priority and hands out remaining stock to families with spare capacity.
+ */
+public class TransportationStrategy implements AllocationStrategy {
+    private static final int MAX_ROUNDS = 40;
+    private static final double TOLERANCE = 0.005;
+    private static final int VALUE_SCALE = 100; // fixed point for knapsack values
+    
+    private int lastRounds;
+    
+    @Override
+    public List<AllocationResult> allocate(SupplyAllocator allocator, List<Family> families) {
+        int n = families.size();
+        List<AllocationResult> results = new ArrayList<>(n);
+        if (n == 0) {
+            return results;
+        }
+        
+        List<Supply> supplies = allocator.getInventory().getAvailableSupplies();
+        int k = supplies.size();
+        
+        int[] value = new int[k];
+        int[] weight = new int[k];
+        int[] stock = new int[k];
+        for (int j = 0; j < k; j++) {
+            Supply supply = supplies.get(j);
+            value[j] = supply.getValue();
+            weight[j] = supply.getWeight();
+            stock[j] = supply.getQuantity();
+        }
+        
+        double[] priority = new double[n];
+        int[] capacity = new int[n];
+        int[] need = new int[n * k];
+        for (int i = 0; i < n; i++) {
+            Family family = families.get(i);
+            priority[i] = family.getPriorityScore();
+            capacity[i] = allocator.calculateFamilyCapacity(family);
+            for (int j = 0; j < k; j++) {
+                need[i * k + j] = allocator.calculateNeed(supplies.get(j), family);
+            }
+        }
+        
+        double[] price = solvePrices(priority, capacity, need, value, weight, stock);
+        int[] grant = planFamilies(priority, capacity, need, value, weight, stock, price);
+        
+        // Resolve what the prices could not: ration by priority, then use spare room
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(priority[b], priority[a]));
+        
+        int[] remaining = stock.clone();
+        int[] spare = capacity.clone();
+        for (int i : order) {
+            for (int j = 0; j < k; j++) {
+                int units = Math.min(grant[i * k + j], remaining[j]);
+                grant[i * k + j] = units;
+                remaining[j] -= units;
+                spare[i] -= units * weight[j];
+            }
+        }
+        fillSpareCapacity(order, spare, need, grant, value, weight, remaining);
+        
+        // Commit to inventory in the caller's order
+        Inventory inventory = allocator.getInventory();
+        for (int i = 0; i < n; i++) {
+            Family family = families.get(i);
+            AllocationResult result = allocator.newResult(family.getFamilyId());
+            LotDraws draws = new LotDraws();
+            for (int j = 0; j < k; j++) {
+                int units = grant[i * k + j];
+                Supply supply = supplies.get(j);
+                int claimed = units > 0 ? inventory.claim(supply, units, draws) : 0;
+                if (claimed > 0) {
+                    result.addAllocatedSupply(supply.getTypeId(), claimed, supply.getValue(), supply.getWeight());
+                }
+            }
+            result.setLotDraws(draws);
+            result.calculateAllocationScore(priority[i]);
+            allocator.notifyFamilyResult(family, result);
+            results.add(result);
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Every family's share depends on the whole population
+     */
+    @Override
+    public boolean supportsSuffixRecompute() {
+        return false;
+    }
+    
+    /**
+     * Number of price rounds used by the last run
+     */
+    public int getLastRounds() {
+        return lastRounds;
+    }
+    
+    /**
+     * Find shadow prices per supply type so that fractional demand fits stock
+     */
+    private double[] solvePrices(double[] priority, int[] capacity, int[] need,
+                                 int[] value, int[] weight, int[] stock) {
+        int n = priority.length;
+        int k = value.length;
+        double[] price = new double[k];
+        double[] step = new double[k];
+        int[] lastMove = new int[k];
+        double[] demand = new double[k];
+        
+        double maxPriority = 0;
+        for (double p : priority) maxPriority = Math.max(maxPriority, p);
+        for (int j = 0; j < k; j++) {
+            step[j] = maxPriority * value[j] / 4.0;
+        }
+        
+        int[] candidates = new int[k];
+        double[] density = new double[k];
+        lastRounds = 0;
+        
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            lastRounds = round + 1;
+            Arrays.fill(demand, 0);
+            
+            for (int i = 0; i < n; i++) {
+                // Fractional knapsack at current prices: best reduced value per weight first
+                int count = 0;
+                for (int j = 0; j < k; j++) {
+                    double reduced = priority[i] * value[j] - price[j];
+                    if (reduced <= 0 || need[i * k + j] <= 0) continue;
+                    double d = reduced / Math.max(1, weight[j]);
+                    int pos = count++;
+                    while (pos > 0 && density[pos - 1] < d) {
+                        density[pos] = density[pos - 1];
+                        candidates[pos] = candidates[pos - 1];
+                        pos--;
+                    }
+                    density[pos] = d;
+                    candidates[pos] = j;
+                }
+                
+                double room = capacity[i];
+                for (int c = 0; c < count && room > 0; c++) {
+                    int j = candidates[c];
+                    double units = weight[j] > 0 ? Math.min(need[i * k + j], room / weight[j]) : need[i * k + j];
+                    demand[j] += units;
+                    room -= units * weight[j];
+                }
+            }
+            
+            boolean cleared = true;
+            for (int j = 0; j < k; j++) {
+                double excess = demand[j] - stock[j];
+                int move = 0;
+                if (excess > TOLERANCE * Math.max(1, stock[j])) {
+                    move = 1;
+                } else if (price[j] > 0 && -excess > TOLERANCE * Math.max(1, stock[j])) {
+                    move = -1;
+                }
+                if (move == 0) continue;
+                
+                cleared = false;
+                if (lastMove[j] != 0 && lastMove[j] != move) {
+                    step[j] /= 2; // overshot: bisect
+                } else if (lastMove[j] == move) {
+                    step[j] *= 1.25; // still on the same side: speed up
+                }
+                price[j] = Math.max(0, price[j] + move * step[j]);
+                lastMove[j] = move;
+            }
+            if (cleared) break;
+        }
+        
+        return price;
+    }
+    
+    /**
+     * Integral plan per family: bounded knapsack on reduced values at the final prices
+     */
+    private int[] planFamilies(double[] priority, int[] capacity, int[] need,
+                               int[] value, int[] weight, int[] stock, double[] price) {
+        int n = priority.length;
+        int k = value.length;
+        int[] grant = new int[n * k];
+        BoundedKnapsackSolver solver = BoundedKnapsackSolver.forCurrentThread();
+        
+        for (int i = 0; i < n; i++) {
+            solver.reset();
+            for (int j = 0; j < k; j++) {
+                long reduced = Math.round((priority[i] * value[j] - price[j]) * VALUE_SCALE);
+                int bound = reduced > 0 ? Math.min(need[i * k + j], stock[j]) : 0;
+                solver.addItem((int) Math.min(reduced, Integer.MAX_VALUE / 1024), weight[j], bound);
+            }
+            solver.solve(capacity[i]);
+            for (int j = 0; j < k; j++) {
+                grant[i * k + j] = solver.getTaken(j);
+            }
+        }
+        
+        return grant;
+    }
+    
+    /**
+     * Give stock the plan left over to families that still have room and need
+     */
+    private void fillSpareCapacity(Integer[] order, int[] spare, int[] need, int[] grant,
+                                   int[] value, int[] weight, int[] remaining) {
+        int k = value.length;
+        Integer[] byRatio = new Integer[k];
+        for (int j = 0; j < k; j++) byRatio[j] = j;
+        Arrays.sort(byRatio, (a, b) -> Double.compare(
+                (double) value[b] / Math.max(1, weight[b]), (double) value[a] / Math.max(1, weight[a])));
+        
+        for (int i : order) {
+            for (int j : byRatio) {
+                if (remaining[j] <= 0) continue;
+                int room = need[i * k + j] - grant[i * k + j];
+                if (weight[j] > 0) {
+                    room = Math.min(room, spare[i] / weight[j]);
+                }
+                int units = Math.min(room, remaining[j]);
+                if (units > 0) {
+                    grant[i * k + j] += units;
+                    remaining[j] -= units;
+                    spare[i] -= units * weight[j];
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -17,6 +17,15 @@ public class test_script {
         // Test 4: Report Generation
         testReportGeneration();
         
+        // Test 5: Returning Units to Dated Lots
+        testLotReturns();
+        
+        // Test 6: Families Shared by Several Allocators
+        testSharedFamilies();
+        
+        // Test 7: CSV Writer Matches the Formatted Export
+        testCsvNumbers();
+        
         System.out.println("\n=== ALL TESTS COMPLETED ===");
     }
     
@@ -116,4 +125,111 @@ public class test_script {
         
         System.out.println("✓ Report generation working correctly");
     }
+    
+    private static void testLotReturns() {
+        System.out.println("\n--- Testing Lot Returns ---");
+        
+        // Units handed back refill the lot their own claim drew from
+        java.time.LocalDate today = java.time.LocalDate.now();
+        Inventory inventory = new Inventory(1_000_000);
+        inventory.addSupply(new Supply("Milk", 1, 5, 0, "liters"));
+        inventory.receiveLot("Milk", "early", 10, today.plusDays(10));
+        inventory.receiveLot("Milk", "late", 10, today.plusDays(20));
+        Supply milk = inventory.getSupply("Milk");
+        LotDraws first = new LotDraws();
+        LotDraws second = new LotDraws();
+        inventory.claimExactly(milk, 10, first);
+        inventory.claimExactly(milk, 10, second);
+        inventory.restock(milk, 10, first);
+        int expired = inventory.expireLots(today.plusDays(15)).getOrDefault("Milk", 0);
+        System.out.println("Expired after returning the early lot's units: " + expired);
+        if (expired != 10 || !first.isEmpty() || second.size() != 1) {
+            throw new IllegalStateException("Returned units went to the wrong lot");
+        }
+        
+        // Draw records live on the claim only and go once returned
+        Supply bulk = new Supply("Rice", 1, 3, 0, "kg");
+        inventory.addSupply(bulk);
+        for (int i = 0; i < 200_000; i++) {
+            inventory.receiveLot("Rice", "R" + i, 1, today.plusDays(1 + i % 300));
+        }
+        inventory.claim(bulk, 100_000);
+        inventory.restock(bulk, 100_000);
+        LotDraws draws = new LotDraws();
+        inventory.claim(bulk, 200_000, draws);
+        System.out.println("Lots recorded by one claim: " + draws.size());
+        inventory.restock(bulk, 200_000, draws);
+        System.out.println("Records left after returning: " + draws.size()
+                + ", units back in lots: " + bulk.getLotUnits());
+        if (!draws.isEmpty() || bulk.getLotUnits() != 100_000 || bulk.getQuantity() != 200_000) {
+            throw new IllegalStateException("Lot records were kept or units lost");
+        }
+        
+        System.out.println("✓ Lot returns working correctly");
+    }
+    
+    private static void testSharedFamilies() {
+        System.out.println("\n--- Testing Shared Families ---");
+        
+        SampleDataGenerator generator = new SampleDataGenerator();
+        var families = generator.generateSampleFamilies();
+        SupplyAllocator first = new SupplyAllocator(families, generator.generateCustomInventory(1000), 20);
+        SupplyAllocator second = new SupplyAllocator(families, generator.generateCustomInventory(1000), 20);
+        Family inactive = families.get(0);
+        inactive.setActive(false);
+        
+        System.out.println("Active families: " + first.getActiveFamilyCount() + " and "
+                + second.getActiveFamilyCount() + " of " + families.size());
+        if (first.getActiveFamilyCount() != families.size() - 1
+                || second.getActiveFamilyCount() != families.size() - 1) {
+            throw new IllegalStateException("A registry missed the status change");
+        }
+        for (AllocationResult result : first.allocateSupplies()) {
+            if (result.getFamilyId().equals(inactive.getFamilyId()) && result.hasAllocations()) {
+                throw new IllegalStateException("Inactive family was served");
+            }
+        }
+        
+        System.out.println("✓ Shared families working correctly");
+    }
+    
+    private static void testCsvNumbers() {
+        System.out.println("\n--- Testing CSV Number Formatting ---");
+        
+        // Magnitudes up to 1e14, every third value close to a rounding tie
+        java.util.Random random = new java.util.Random(21);
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        StringBuilder expected = new StringBuilder(CsvResultWriter.HEADER);
+        int rows = 300_000;
+        try (CsvResultWriter writer = new CsvResultWriter(java.nio.channels.Channels.newChannel(out))) {
+            for (int i = 0; i < rows; i++) {
+                double magnitude = Math.pow(10, random.nextDouble() * 14);
+                double distance = i % 3 == 0 ? Math.floor(magnitude) + 0.05 : magnitude;
+                double priority = i == 0 ? 5.62745250779075E11 : i % 3 == 0 ? Math.floor(magnitude) + 0.005 : -magnitude;
+                Family family = new Family("F" + i, 1, distance, 1) {
+                    @Override
+                    public double getPriorityScore() { return priority; }
+                };
+                writer.write(family, null);
+                expected.append(String.format("%s,%d,%.1f,%d,%.2f,\"\",0,0,0.00\n",
+                        family.getFamilyId(), 1, distance, 1, priority));
+            }
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+        String[] written = out.toString().split("\n");
+        String[] formatted = expected.toString().split("\n");
+        int mismatches = 0;
+        for (int i = 0; i < formatted.length; i++) {
+            if (!formatted[i].equals(written[i])) {
+                mismatches++;
+            }
+        }
+        System.out.println("Rows compared with String.format: " + rows + ", mismatches: " + mismatches);
+        if (mismatches != 0 || written.length != formatted.length) {
+            throw new IllegalStateException("CSV writer differs from the formatted export");
+        }
+        
+        System.out.println("✓ CSV number formatting working correctly");
+    }
 }
\ No newline at end of file